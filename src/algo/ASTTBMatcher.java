@@ -1,7 +1,10 @@
 package algo;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.jgrapht.graph.SimpleWeightedGraph;
 
@@ -9,6 +12,8 @@ import schedulable.Transportation;
 import search.DFS;
 import search.TreeSearch;
 import state.MatchingState;
+import state.Pairing;
+import state.TravelGraph;
 import time.TimeBlock;
 import activities.ActivitySpanningTree;
 import activities.Location;
@@ -36,22 +41,91 @@ public class ASTTBMatcher {
 	public static ArrayList<TimeBlock> matching(
 			SimpleWeightedGraph<Location, Transportation> graph,
 			Set<ActivitySpanningTree> asts) {
+		return matching(graph, asts, null);
+	}
+	
+	/**
+	 * Same as matching(), but the TB - AST pairs of each matching are
+	 * scheduled concurrently on the given executor, see
+	 * Scheduler.autoScheduleAll(). The executor is not shut down
+	 * 
+	 * @param graph
+	 *            The graph to pass on to the scheduler
+	 * @param asts
+	 *            Set of asts to match with. Their data structure contains the
+	 *            availableTBs
+	 * @param executor
+	 *            The executor to schedule the pairs on. Null to schedule them
+	 *            one after another on this thread
+	 * @return Result of the scheduler as an arraylist of timeblocks
+	 */
+	public static ArrayList<TimeBlock> matching(
+			SimpleWeightedGraph<Location, Transportation> graph,
+			Set<ActivitySpanningTree> asts, ExecutorService executor) {
 		
-		// construct the initial state
-		MatchingState root = new MatchingState(asts);
+		// construct the initial state. Pairs that can't fit or fail to
+		// schedule are added to the nogoods so that no matching tries them
+		HashSet<Pairing> nogoods = tooLong(asts);
+		MatchingState root = new MatchingState(asts, nogoods);
+		
+		// no matching at all, don't bother searching
+		if (!root.isCompletable()) {
+			return null;
+		}
 		
 		TreeSearch searcher = new TreeSearch(new DFS(), root);
 		
+		// matchings share most of their pairs, so each pair is only
+		// scheduled once
+		ScheduleCache cache = new ScheduleCache();
+		TravelGraph travelGraph = Scheduler.travelGraph(graph);
+		
 		// for each goal state, pass to next module and wait for response
 		MatchingState goal;
 		while ((goal = (MatchingState) searcher.nextGoal()) != null) {
-			ArrayList<TimeBlock> schedule = Scheduler.autoScheduleAll(graph,
-					goal.getMatches());
+			ArrayList<TimeBlock> schedule;
+			if (executor == null) {
+				schedule = Scheduler.autoScheduleAll(graph, travelGraph,
+						goal.getMatches(), cache);
+			} else {
+				schedule = Scheduler.autoScheduleAll(graph, travelGraph,
+						goal.getMatches(), cache, executor);
+			}
 			if (schedule != null) {
 				return schedule;
 			}
+			
+			// the cache knows which pairs failed
+			for (Map.Entry<TimeBlock, ActivitySpanningTree> pair : goal
+					.getMatches().entrySet()) {
+				if (cache.contains(pair.getKey(), pair.getValue())
+						&& cache.get(pair.getKey(), pair.getValue()) == null) {
+					nogoods.add(new Pairing(pair.getKey(), pair.getValue()));
+				}
+			}
 		}
 		
 		return null;
 	}
+	
+	/**
+	 * Helper function that finds the pairs that can never schedule because
+	 * the activities of the AST take longer than the whole TB
+	 * 
+	 * @param asts
+	 *            The ASTs to check against their availableTBs
+	 * @return The set of such TB - AST pairs
+	 */
+	static HashSet<Pairing> tooLong(Set<ActivitySpanningTree> asts) {
+		HashSet<Pairing> tooLong = new HashSet<Pairing>();
+		for (ActivitySpanningTree ast : asts) {
+			for (TimeBlock tb : ast.getAvailableTBs()) {
+				if (ast.getSumActivitiesTime().isLongerThan(
+						tb.getInterval().toDuration())) {
+					tooLong.add(new Pairing(tb, ast));
+				}
+			}
+		}
+		return tooLong;
+	}
 }
@@ -0,0 +1,79 @@
+package algo;
+
+import java.util.IdentityHashMap;
+
+import time.TimeBlock;
+import activities.ActivitySpanningTree;
+
+/**
+ * Remembers the result of scheduling each TB - AST pair, including the ones
+ * that failed, so that no pair is searched twice. Pairs are told apart by the
+ * identity of the TB and the AST, which is how they come back from
+ * MatchingState.getMatches(), so two TBs or ASTs that share an index are never
+ * mixed up
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class ScheduleCache {
+	
+	private IdentityHashMap<TimeBlock, IdentityHashMap<ActivitySpanningTree, TimeBlock>> results = new IdentityHashMap<TimeBlock, IdentityHashMap<ActivitySpanningTree, TimeBlock>>();
+	private int size;
+	
+	/**
+	 * Checks if the pair has been scheduled before
+	 * 
+	 * @param tb
+	 *            The TB of the pair
+	 * @param ast
+	 *            The AST of the pair
+	 * @return True if there is a result for this pair, even if it failed.
+	 *         False if otherwise
+	 */
+	public boolean contains(TimeBlock tb, ActivitySpanningTree ast) {
+		IdentityHashMap<ActivitySpanningTree, TimeBlock> ofTb = results.get(tb);
+		return ofTb != null && ofTb.containsKey(ast);
+	}
+	
+	/**
+	 * Get the result of scheduling the pair
+	 * 
+	 * @param tb
+	 *            The TB of the pair
+	 * @param ast
+	 *            The AST of the pair
+	 * @return The TB with activities scheduled in. Null if the pair failed to
+	 *         schedule or hasn't been scheduled, see contains()
+	 */
+	public TimeBlock get(TimeBlock tb, ActivitySpanningTree ast) {
+		IdentityHashMap<ActivitySpanningTree, TimeBlock> ofTb = results.get(tb);
+		return ofTb == null ? null : ofTb.get(ast);
+	}
+	
+	/**
+	 * Record the result of scheduling the pair
+	 * 
+	 * @param tb
+	 *            The TB of the pair
+	 * @param ast
+	 *            The AST of the pair
+	 * @param result
+	 *            The TB with activities scheduled in. Null if it failed
+	 */
+	public void put(TimeBlock tb, ActivitySpanningTree ast, TimeBlock result) {
+		IdentityHashMap<ActivitySpanningTree, TimeBlock> ofTb = results.get(tb);
+		if (ofTb == null) {
+			ofTb = new IdentityHashMap<ActivitySpanningTree, TimeBlock>();
+			results.put(tb, ofTb);
+		}
+		if (!ofTb.containsKey(ast)) {
+			size++;
+		}
+		ofTb.put(ast, result);
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+}
@@ -2,14 +2,30 @@ package algo;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.jgrapht.graph.SimpleWeightedGraph;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
 
+import schedulable.Activity;
+import schedulable.Schedulable;
 import schedulable.Transportation;
-import search.AStar;
+import search.DominanceStore;
+import search.IndexedAStar;
 import search.TreeSearch;
+import state.CompactTravelGraph;
 import state.SchedulingState;
+import state.TravelGraph;
+import state.TravelMatrix;
 import time.TimeBlock;
 import activities.ActivitySpanningTree;
 import activities.Location;
@@ -22,6 +38,33 @@ import activities.Location;
  */
 
 public class Scheduler {
+	
+	/**
+	 * The most locations a graph can have to have its shortest paths in a
+	 * TravelMatrix. 256 locations take about 800KB
+	 */
+	public static final int MAX_DENSE_LOCATIONS = 256;
+	
+	/**
+	 * Builds the lookup of the travel times of a graph. Both kinds route
+	 * through other locations the same way. Small graphs get a TravelMatrix of
+	 * all the fastest times up front. Larger ones get a CompactTravelGraph,
+	 * which takes memory in proportion to the number of edges and finds the
+	 * fastest times from a location when they are first looked up
+	 * 
+	 * @param graph
+	 *            The graph that contains the transportation details between all
+	 *            locations. Not changed
+	 * @return The travel graph
+	 */
+	public static TravelGraph travelGraph(
+			SimpleWeightedGraph<Location, Transportation> graph) {
+		if (graph.vertexSet().size() <= MAX_DENSE_LOCATIONS) {
+			return new TravelMatrix(graph);
+		}
+		return new CompactTravelGraph(graph);
+	}
+	
 	/**
 	 * Iterate through a list of TB - AST pairs and automatically schedule each.
 	 * 
@@ -38,11 +81,78 @@ public class Scheduler {
 			SimpleWeightedGraph<Location, Transportation> graph,
 			HashMap<TimeBlock, ActivitySpanningTree> pairs) {
 		
+		ArrayList<TimeBlock> autoSchedules = new ArrayList<TimeBlock>();
+		TravelGraph travelGraph = travelGraph(graph);
+		
+		for (Map.Entry<TimeBlock, ActivitySpanningTree> pair : pairs.entrySet()) {
+			TimeBlock autoSchedule = autoSchedule(graph, travelGraph,
+					pair.getKey(), pair.getValue());
+			if (autoSchedule == null) {
+				return null;
+			} else {
+				autoSchedules.add(autoSchedule);
+			}
+			
+		}
+		return autoSchedules;
+	}
+	
+	/**
+	 * Same as autoScheduleAll() but looks up each pair in the cache first, and
+	 * records the result in the cache otherwise, whether it succeeded or not
+	 * 
+	 * @param graph
+	 *            The graph that contains the transportation details between all
+	 *            locations. The graph is shared by all TB - AST pairs.
+	 * @param pairs
+	 *            HashMap of TB - AST pairs, meaning to schedule the activities
+	 *            in the AST to its paired TB
+	 * @param cache
+	 *            The results of the pairs scheduled before
+	 * @return a list of TBs with activities scheduled in returns null if at
+	 *         least one TB - AST pair failed to schedule
+	 */
+	public static ArrayList<TimeBlock> autoScheduleAll(
+			SimpleWeightedGraph<Location, Transportation> graph,
+			HashMap<TimeBlock, ActivitySpanningTree> pairs, ScheduleCache cache) {
+		return autoScheduleAll(graph, travelGraph(graph), pairs, cache);
+	}
+	
+	/**
+	 * Same as autoScheduleAll() with a cache, but with the travel times of the
+	 * graph already looked up, so that it is done once for all matchings of a
+	 * request
+	 * 
+	 * @param graph
+	 *            The graph that contains the transportation details between all
+	 *            locations. The graph is shared by all TB - AST pairs.
+	 * @param travelGraph
+	 *            The travel times of the graph, see travelGraph()
+	 * @param pairs
+	 *            HashMap of TB - AST pairs, meaning to schedule the activities
+	 *            in the AST to its paired TB
+	 * @param cache
+	 *            The results of the pairs scheduled before
+	 * @return a list of TBs with activities scheduled in returns null if at
+	 *         least one TB - AST pair failed to schedule
+	 */
+	public static ArrayList<TimeBlock> autoScheduleAll(
+			SimpleWeightedGraph<Location, Transportation> graph,
+			TravelGraph travelGraph,
+			HashMap<TimeBlock, ActivitySpanningTree> pairs, ScheduleCache cache) {
+		
 		ArrayList<TimeBlock> autoSchedules = new ArrayList<TimeBlock>();
 		
 		for (Map.Entry<TimeBlock, ActivitySpanningTree> pair : pairs.entrySet()) {
-			TimeBlock autoSchedule = autoSchedule(graph, pair.getKey(),
-					pair.getValue());
+			TimeBlock autoSchedule;
+			if (cache.contains(pair.getKey(), pair.getValue())) {
+				autoSchedule = cache.get(pair.getKey(), pair.getValue());
+			} else {
+				autoSchedule = autoSchedule(graph, travelGraph, pair.getKey(),
+						pair.getValue());
+				cache.put(pair.getKey(), pair.getValue(), autoSchedule);
+			}
+			
 			if (autoSchedule == null) {
 				return null;
 			} else {
@@ -53,11 +163,107 @@ public class Scheduler {
 		return autoSchedules;
 	}
 	
+	/**
+	 * Same as autoScheduleAll() with a cache, but the pairs that are not in
+	 * the cache are scheduled concurrently on the given executor. Each pair is
+	 * searched independently, so this takes about as long as the slowest pair.
+	 * As soon as one pair fails to schedule, the others are cancelled. The
+	 * cache is only used from this thread, and only the pairs that finished
+	 * are recorded in it. The executor is not shut down
+	 * 
+	 * @param graph
+	 *            The graph that contains the transportation details between all
+	 *            locations. The graph is shared by all TB - AST pairs and must
+	 *            not be changed while scheduling
+	 * @param travelGraph
+	 *            The travel times of the graph, see travelGraph()
+	 * @param pairs
+	 *            HashMap of TB - AST pairs, meaning to schedule the activities
+	 *            in the AST to its paired TB
+	 * @param cache
+	 *            The results of the pairs scheduled before
+	 * @param executor
+	 *            The executor to run the searches on, for example a
+	 *            ForkJoinPool
+	 * @throws RuntimeException
+	 *             Throws exception if scheduling some pair threw an exception
+	 * @return a list of TBs with activities scheduled in, in the same order as
+	 *         autoScheduleAll() without an executor. Null if at least one TB -
+	 *         AST pair failed to schedule or this thread was interrupted
+	 */
+	public static ArrayList<TimeBlock> autoScheduleAll(
+			final SimpleWeightedGraph<Location, Transportation> graph,
+			final TravelGraph travelGraph,
+			HashMap<TimeBlock, ActivitySpanningTree> pairs,
+			ScheduleCache cache, ExecutorService executor) {
+		
+		// a pair known to fail fails them all, don't start any search
+		for (Map.Entry<TimeBlock, ActivitySpanningTree> pair : pairs.entrySet()) {
+			if (cache.contains(pair.getKey(), pair.getValue())
+					&& cache.get(pair.getKey(), pair.getValue()) == null) {
+				return null;
+			}
+		}
+		
+		// submit the pairs that are not in the cache
+		CompletionService<TimeBlock> completion = new ExecutorCompletionService<TimeBlock>(
+				executor);
+		HashMap<Future<TimeBlock>, Map.Entry<TimeBlock, ActivitySpanningTree>> submitted = new HashMap<Future<TimeBlock>, Map.Entry<TimeBlock, ActivitySpanningTree>>();
+		for (final Map.Entry<TimeBlock, ActivitySpanningTree> pair : pairs
+				.entrySet()) {
+			if (!cache.contains(pair.getKey(), pair.getValue())) {
+				submitted.put(completion.submit(new Callable<TimeBlock>() {
+					@Override
+					public TimeBlock call() {
+						return autoSchedule(graph, travelGraph, pair.getKey(),
+								pair.getValue());
+					}
+				}), pair);
+			}
+		}
+		
+		try {
+			// take them as they finish so that a failure is noticed right away
+			for (int i = 0; i < submitted.size(); i++) {
+				Future<TimeBlock> future = completion.take();
+				Map.Entry<TimeBlock, ActivitySpanningTree> pair = submitted
+						.get(future);
+				TimeBlock autoSchedule = future.get();
+				cache.put(pair.getKey(), pair.getValue(), autoSchedule);
+				if (autoSchedule == null) {
+					return null;
+				}
+			}
+			
+			// everything is in the cache now
+			ArrayList<TimeBlock> autoSchedules = new ArrayList<TimeBlock>();
+			for (Map.Entry<TimeBlock, ActivitySpanningTree> pair : pairs
+					.entrySet()) {
+				autoSchedules.add(cache.get(pair.getKey(), pair.getValue()));
+			}
+			return autoSchedules;
+			
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Failed to schedule a TB - AST pair",
+					e.getCause());
+		} finally {
+			// nothing left to cancel if all went well
+			for (Future<TimeBlock> future : submitted.keySet()) {
+				future.cancel(true);
+			}
+		}
+	}
+	
 	/**
 	 * Automatically schedule one single TB - AST pair.
 	 * 
 	 * @param wholeGraph
 	 *            graph for this entire trip
+	 * @param travelGraph
+	 *            The travel times of the graph
 	 * @param timeblock
 	 *            the TB to be scheduled on
 	 * @param ast
@@ -66,13 +272,22 @@ public class Scheduler {
 	 */
 	private static TimeBlock autoSchedule(
 			SimpleWeightedGraph<Location, Transportation> wholeGraph,
-			TimeBlock timeblock, ActivitySpanningTree ast) {
+			TravelGraph travelGraph, TimeBlock timeblock,
+			ActivitySpanningTree ast) {
+		
+		// no search needed if it can't fit even with the fastest travel
+		if (!lowerBoundsFit(wholeGraph, timeblock, ast)) {
+			return null;
+		}
 		
 		// construct the initial state
 		SchedulingState root = new SchedulingState(timeblock, wholeGraph,
-				ast.getActivities());
+				travelGraph, ast.getActivities());
 		
-		TreeSearch searcher = new TreeSearch(new AStar(), root);
+		// drop states that can start the same activities from the same place
+		// only later
+		TreeSearch searcher = new TreeSearch(new IndexedAStar(), root,
+				new DominanceStore());
 		
 		// We only need the most optimal solution since it's the last part of
 		// the workflow
@@ -84,4 +299,90 @@ public class Scheduler {
 		}
 	}
 	
+	/**
+	 * Helper function that checks cheap relaxations of a TB - AST pair before
+	 * any search. Every activity needs some legal time within what is left of
+	 * the TB that is long enough for it. The activities together, plus the
+	 * fastest way into each location that must be visited, must fit in what is
+	 * left of the TB. Each of those locations has to be travelled to at least
+	 * once, and each time costs at least its shortest edge, so a pair that
+	 * fails this can never be scheduled
+	 * 
+	 * @param graph
+	 *            The graph with the transportation between locations
+	 * @param timeblock
+	 *            The TB to schedule on
+	 * @param ast
+	 *            The AST with the activities to schedule
+	 * @return False if the pair can't be scheduled. True if it might be
+	 */
+	static boolean lowerBoundsFit(
+			SimpleWeightedGraph<Location, Transportation> graph,
+			TimeBlock timeblock, ActivitySpanningTree ast) {
+		DateTime from = timeblock.lastEndTime();
+		DateTime until = timeblock.getInterval().getEnd();
+		
+		// where the user already is needs no travel
+		HashSet<Location> toVisit = new HashSet<Location>();
+		toVisit.add(timeblock.getEndLocation());
+		long busy = 0;
+		for (Activity activity : ast.getActivities()) {
+			if (!fitsLegalTimes(activity, from, until)) {
+				return false;
+			}
+			toVisit.add(activity.location);
+			busy += activity.getDuration().getMillis();
+		}
+		toVisit.remove(timeblock.getStartLocation());
+		Map.Entry<DateTime, Schedulable> last = timeblock.getLastScheduled();
+		if (last != null && last.getValue() instanceof Activity) {
+			toVisit.remove(((Activity) last.getValue()).location);
+		}
+		
+		for (Location location : toVisit) {
+			if (!graph.containsVertex(location)) {
+				return false;
+			}
+			long fastest = Long.MAX_VALUE;
+			for (Transportation edge : graph.edgesOf(location)) {
+				fastest = Math.min(fastest, edge.getDuration().getMillis());
+			}
+			if (fastest == Long.MAX_VALUE) {
+				return false;
+			}
+			busy += fastest;
+		}
+		
+		return busy <= until.getMillis() - from.getMillis();
+	}
+	
+	/**
+	 * Helper function that checks if an activity has a legal time between the
+	 * two times that is long enough for it
+	 * 
+	 * @param activity
+	 *            The activity
+	 * @param from
+	 *            The earliest start
+	 * @param until
+	 *            The latest end
+	 * @return True if found one. False if otherwise
+	 */
+	private static boolean fitsLegalTimes(Activity activity, DateTime from,
+			DateTime until) {
+		long duration = activity.getDuration().getMillis();
+		Iterator<Interval> legal = activity.legalTimeline.availableFrom(from);
+		while (legal.hasNext()) {
+			Interval window = legal.next();
+			if (!window.getStart().isBefore(until)) {
+				return false;
+			}
+			if (Math.min(window.getEndMillis(), until.getMillis())
+					- window.getStartMillis() >= duration) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 }
@@ -9,6 +9,7 @@ import org.joda.time.Duration;
 import org.joda.time.Interval;
 
 import time.LegalTimeline;
+import util.Util;
 import activities.Location;
 
 /**
@@ -23,7 +24,8 @@ public class Activity extends Schedulable implements Serializable {
 	private static final long serialVersionUID = -17837538834918894L;
 	public String title;
 	public Location location;
-	public LegalTimeline legalTimeline; // A timeline of legal open hours
+	public final LegalTimeline legalTimeline; // A timeline of legal open hours
+	private transient volatile LegalHash legalHash; // see longHashCode()
 	
 	/**
 	 * Constructor with only duration. Title will be an empty string "".
@@ -113,6 +115,21 @@ public class Activity extends Schedulable implements Serializable {
 		return legalTimeline.enoughLegalTimes(duration);
 	}
 	
+	/**
+	 * Checks if the legal timeline of this activity contains some segment that
+	 * is enough to schedule this activity itself at or after the given time.
+	 * Same as calling setEarliestAvailable() on the legal timeline and then
+	 * forwardChecking(), except that the legal timeline is left unchanged
+	 * 
+	 * @param bound
+	 *            The earliest time this activity can be scheduled
+	 * @return True if found enough legal available time to schedule this
+	 *         activity. False otherwise
+	 */
+	public boolean forwardChecking(DateTime bound) {
+		return legalTimeline.enoughLegalTimes(bound, duration);
+	}
+	
 	/**
 	 * Add a block of legal time to the legal timeline
 	 * 
@@ -155,4 +172,39 @@ public class Activity extends Schedulable implements Serializable {
 		
 	}
 	
+	/**
+	 * Overrides the Schedulable longHashCode(). Hashing the legal timeline
+	 * takes a while, so its hash is kept until the legal timeline changes,
+	 * which is told by its mod count. Activities are shared by searches
+	 * running at the same time, so the hash and the mod count are handed over
+	 * together through a volatile field. The other fields are hashed every
+	 * time
+	 */
+	@Override
+	public long longHashCode() {
+		int modCount = legalTimeline.getModCount();
+		LegalHash hash = legalHash;
+		if (hash == null || hash.modCount != modCount) {
+			hash = new LegalHash(modCount, legalTimeline.longHashCode());
+			legalHash = hash;
+		}
+		return Util.mix(new HashCodeBuilder().append(duration).append(title)
+				.append(location).toHashCode())
+				^ hash.hash;
+	}
+	
+	/**
+	 * The longHashCode() of the legal timeline and the mod count it was taken
+	 * at
+	 */
+	private static final class LegalHash {
+		private final int modCount;
+		private final long hash;
+		
+		private LegalHash(int modCount, long hash) {
+			this.modCount = modCount;
+			this.hash = hash;
+		}
+	}
+	
 }
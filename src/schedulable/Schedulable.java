@@ -4,6 +4,8 @@ import java.io.Serializable;
 
 import org.joda.time.Duration;
 
+import util.Util;
+
 /**
  * An abstract class that represents all classes that can be scheduled on a
  * Timeline.
@@ -16,6 +18,15 @@ public abstract class Schedulable implements Serializable {
 	
 	protected Duration duration;
 	
+	/**
+	 * 64-bit hash consistent with equals(). Scrambles hashCode() by default
+	 * 
+	 * @return The hash
+	 */
+	public long longHashCode() {
+		return Util.mix(hashCode());
+	}
+	
 	public Duration getDuration() {
 		return duration;
 	}
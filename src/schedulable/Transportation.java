@@ -9,7 +9,9 @@ import activities.Location;
 /**
  * The transportation class is a schedulable so that it can be scheduled on a
  * Timeline. It only has a duration field. In a graph, it is the edge between
- * two locations
+ * two locations. When scheduled, it might also stand for a route through
+ * other locations that is faster than the edge, see state.TravelGraph. Only
+ * the two ends of such a route are kept
  * 
  * @author chiao-yutuan
  * 
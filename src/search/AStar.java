@@ -1,5 +1,6 @@
 package search;
 
+import java.util.Iterator;
 import java.util.PriorityQueue;
 
 import state.SearchState;
@@ -20,4 +21,17 @@ public class AStar extends PriorityQueue<SearchState> implements
 		return poll();
 	}
 	
+	/**
+	 * Adds every state the iterator goes through, since the best one can only
+	 * be known once all of them are generated
+	 */
+	@Override
+	public boolean addAll(Iterator<? extends SearchState> states) {
+		boolean changed = false;
+		while (states.hasNext()) {
+			changed |= add(states.next());
+		}
+		return changed;
+	}
+	
 }
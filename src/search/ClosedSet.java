@@ -0,0 +1,36 @@
+package search;
+
+import state.GraphSearchState;
+
+/**
+ * The interface for the set of states a graph search has already generated.
+ * TreeSearch uses it to drop states that duplicate one it has seen
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public interface ClosedSet {
+	
+	/**
+	 * Record a newly generated state
+	 * 
+	 * @param state
+	 *            The state generated
+	 * @return True if the state needs to be searched, because no state with
+	 *         the same signature was generated before or this one has a lower
+	 *         g. False if it is a duplicate
+	 */
+	public boolean add(GraphSearchState state);
+	
+	/**
+	 * Checks if a state that was added is still the best one with its
+	 * signature
+	 * 
+	 * @param state
+	 *            The state to check
+	 * @return True if no state with the same signature and a lower g was added
+	 *         after it. False if otherwise
+	 */
+	public boolean isCurrent(GraphSearchState state);
+	
+}
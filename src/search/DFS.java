@@ -1,10 +1,73 @@
 package search;
 
-import java.util.Stack;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 
 import state.SearchState;
 
-@SuppressWarnings("serial")
-public class DFS extends Stack<SearchState> implements StatesContainer {
-
+/**
+ * A stack of iterators over successors, one for each depth. A state is only
+ * taken from its iterator when it is popped, so states are expanded in the
+ * order they are listed, and with lazy successors only the states on the path
+ * being searched are kept in memory
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class DFS implements StatesContainer {
+	
+	private final ArrayDeque<Iterator<? extends SearchState>> stack = new ArrayDeque<Iterator<? extends SearchState>>();
+	
+	/**
+	 * Checks if any iterator has a state left. Iterators that ran out are left
+	 * on the stack for pop() to drop
+	 */
+	@Override
+	public boolean isEmpty() {
+		for (Iterator<? extends SearchState> states : stack) {
+			if (states.hasNext()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Takes the next state from the top iterator that has one left, dropping
+	 * the iterators above it
+	 * 
+	 * @return The state. Null if empty
+	 */
+	@Override
+	public SearchState pop() {
+		while (!stack.isEmpty()) {
+			if (stack.peek().hasNext()) {
+				return stack.peek().next();
+			}
+			stack.pop();
+		}
+		return null;
+	}
+	
+	@Override
+	public boolean add(SearchState state) {
+		stack.push(Collections.singleton(state).iterator());
+		return true;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends SearchState> states) {
+		stack.push(new ArrayList<SearchState>(states).iterator());
+		return !states.isEmpty();
+	}
+	
+	@Override
+	public boolean addAll(Iterator<? extends SearchState> states) {
+		stack.push(states);
+		return true;
+	}
+	
 }
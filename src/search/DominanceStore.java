@@ -0,0 +1,33 @@
+package search;
+
+import state.DominanceState;
+import state.GraphSearchState;
+
+/**
+ * A ClosedSet that drops dominated states. DominanceStates are stored by their
+ * dominance key, so a state is dropped if some state with the same key and no
+ * higher dominance value was generated before. Other GraphSearchStates are
+ * stored by signature the same way as HashClosedSet
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class DominanceStore extends HashClosedSet {
+	
+	@Override
+	protected Object key(GraphSearchState state) {
+		if (state instanceof DominanceState) {
+			return ((DominanceState) state).getDominanceKey();
+		}
+		return super.key(state);
+	}
+	
+	@Override
+	protected long value(GraphSearchState state) {
+		if (state instanceof DominanceState) {
+			return ((DominanceState) state).getDominanceValue();
+		}
+		return super.value(state);
+	}
+	
+}
@@ -0,0 +1,61 @@
+package search;
+
+import java.util.HashMap;
+
+import state.GraphSearchState;
+
+/**
+ * A ClosedSet that keeps the lowest g seen for each signature in a HashMap
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class HashClosedSet implements ClosedSet {
+	
+	private HashMap<Object, Long> best = new HashMap<Object, Long>();
+	
+	@Override
+	public boolean add(GraphSearchState state) {
+		Object key = key(state);
+		Long seen = best.get(key);
+		if (seen != null && seen <= value(state)) {
+			return false;
+		}
+		best.put(key, value(state));
+		return true;
+	}
+	
+	@Override
+	public boolean isCurrent(GraphSearchState state) {
+		Long seen = best.get(key(state));
+		return seen == null || seen == value(state);
+	}
+	
+	/**
+	 * The key the states are stored by. Signature by default
+	 * 
+	 * @param state
+	 *            The state to get the key of
+	 * @return The key
+	 */
+	protected Object key(GraphSearchState state) {
+		return state.getSignature();
+	}
+	
+	/**
+	 * The value of the states with the same key to compare with. Lower is
+	 * better. G by default
+	 * 
+	 * @param state
+	 *            The state to get the value of
+	 * @return The value
+	 */
+	protected long value(GraphSearchState state) {
+		return state.getG();
+	}
+	
+	public int size() {
+		return best.size();
+	}
+	
+}
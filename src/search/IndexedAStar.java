@@ -0,0 +1,227 @@
+package search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import state.DominanceState;
+import state.GraphSearchState;
+import state.PrioritizedState;
+import state.SearchState;
+
+/**
+ * An AStar container on a 4-ary heap of f values, with an index from the key
+ * of each GraphSearchState on the heap to its slot. DominanceStates are keyed
+ * by their dominance key, and a state whose key is already on the heap
+ * replaces it in place if it has a lower dominance value, since it can reach
+ * everything the other can at no higher cost. Other GraphSearchStates are
+ * keyed by signature and replace the one on the heap if they have a lower f,
+ * since states with the same signature have the same successors. Either way
+ * the heap never has two states with the same key, and finding a cheaper way
+ * to one moves it up instead of adding another. Every state added must be a
+ * PrioritizedState
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class IndexedAStar implements StatesContainer {
+	
+	private static final int ARITY = 4;
+	private static final int NOT_ON_HEAP = -1;
+	
+	private Entry[] entries = new Entry[16];
+	private long[] keys = new long[16]; // f of the entry in the same slot
+	private int size;
+	private final HashMap<Object, Entry> index = new HashMap<Object, Entry>();
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Takes the state with the lowest f off the heap
+	 * 
+	 * @return The state. Null if empty
+	 */
+	@Override
+	public SearchState pop() {
+		if (size == 0) {
+			return null;
+		}
+		Entry top = entries[0];
+		if (top.key != null) {
+			index.remove(top.key);
+		}
+		top.slot = NOT_ON_HEAP;
+		
+		size--;
+		if (size > 0) {
+			Entry last = entries[size];
+			long key = keys[size];
+			entries[size] = null;
+			siftDown(0, last, key);
+		} else {
+			entries[0] = null;
+		}
+		return top.state;
+	}
+	
+	/**
+	 * Adds a state, or replaces the one on the heap with the same key if this
+	 * one dominates it
+	 * 
+	 * @param state
+	 *            The state to add. Must be a PrioritizedState
+	 * @throws ClassCastException
+	 *             Throws exception if the state is not a PrioritizedState
+	 * @return True if the heap changed. False if a state with the same key
+	 *         that is no worse is on it already
+	 */
+	@Override
+	public boolean add(SearchState state) {
+		long f = ((PrioritizedState) state).getF();
+		Object key = null;
+		if (state instanceof GraphSearchState) {
+			key = key((GraphSearchState) state);
+			Entry open = index.get(key);
+			if (open != null) {
+				if (!dominates(state, f, open)) {
+					return false;
+				}
+				
+				// decrease key
+				long old = keys[open.slot];
+				open.state = state;
+				if (f <= old) {
+					siftUp(open.slot, open, f);
+				} else {
+					siftDown(open.slot, open, f);
+				}
+				return true;
+			}
+		}
+		
+		Entry entry = new Entry(state, key);
+		if (key != null) {
+			index.put(key, entry);
+		}
+		if (size == entries.length) {
+			entries = Arrays.copyOf(entries, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		siftUp(size++, entry, f);
+		return true;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends SearchState> states) {
+		return addAll(states.iterator());
+	}
+	
+	@Override
+	public boolean addAll(Iterator<? extends SearchState> states) {
+		boolean changed = false;
+		while (states.hasNext()) {
+			changed |= add(states.next());
+		}
+		return changed;
+	}
+	
+	/**
+	 * Helper function that finds the key a state is indexed by. The dominance
+	 * key for DominanceStates, the signature otherwise
+	 */
+	private static Object key(GraphSearchState state) {
+		if (state instanceof DominanceState) {
+			return ((DominanceState) state).getDominanceKey();
+		}
+		return state.getSignature();
+	}
+	
+	/**
+	 * Helper function that checks if a state should replace the one on the
+	 * heap with the same key. A lower dominance value for DominanceStates, a
+	 * lower f otherwise
+	 */
+	private boolean dominates(SearchState state, long f, Entry open) {
+		if (state instanceof DominanceState) {
+			long value = ((DominanceState) state).getDominanceValue();
+			return value < ((DominanceState) open.state).getDominanceValue();
+		}
+		return f < keys[open.slot];
+	}
+	
+	/**
+	 * Helper function that moves an entry up from a slot until its parent has
+	 * no higher f, and puts it there
+	 */
+	private void siftUp(int slot, Entry entry, long key) {
+		while (slot > 0) {
+			int parent = (slot - 1) / ARITY;
+			if (keys[parent] <= key) {
+				break;
+			}
+			place(slot, entries[parent], keys[parent]);
+			slot = parent;
+		}
+		place(slot, entry, key);
+	}
+	
+	/**
+	 * Helper function that moves an entry down from a slot until none of its
+	 * children has a lower f, and puts it there
+	 */
+	private void siftDown(int slot, Entry entry, long key) {
+		while (true) {
+			int first = slot * ARITY + 1;
+			if (first >= size) {
+				break;
+			}
+			int child = first;
+			int last = Math.min(first + ARITY, size);
+			for (int i = first + 1; i < last; i++) {
+				if (keys[i] < keys[child]) {
+					child = i;
+				}
+			}
+			if (keys[child] >= key) {
+				break;
+			}
+			place(slot, entries[child], keys[child]);
+			slot = child;
+		}
+		place(slot, entry, key);
+	}
+	
+	/**
+	 * Helper function that puts an entry in a slot and updates where it is
+	 */
+	private void place(int slot, Entry entry, long key) {
+		entries[slot] = entry;
+		keys[slot] = key;
+		entry.slot = slot;
+	}
+	
+	/**
+	 * A state on the heap and where it is. The index points to the entry, so
+	 * moving it on the heap doesn't need to look up the key
+	 */
+	private static final class Entry {
+		private SearchState state;
+		private final Object key; // null if not a GraphSearchState
+		private int slot;
+		
+		private Entry(SearchState state, Object key) {
+			this.state = state;
+			this.key = key;
+			this.slot = NOT_ON_HEAP;
+		}
+	}
+	
+}
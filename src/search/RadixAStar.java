@@ -0,0 +1,186 @@
+package search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+import state.PrioritizedState;
+import state.SearchState;
+
+/**
+ * An AStar container on a radix heap of f values. With a consistent heuristic
+ * f never goes down along a path, so no state added is below the last f
+ * popped. States are kept in buckets by the highest bit their f differs from
+ * the last f popped in, and only the bucket being emptied is sorted out
+ * again, so adding and popping take amortized O(1) for the 64 bits of a long
+ * instead of O(log n) comparisons. A state below the last f popped goes to a
+ * plain priority queue on the side instead, so states still come out in order
+ * of f if the heuristic isn't consistent. Every state added must be a
+ * PrioritizedState
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class RadixAStar implements StatesContainer {
+	
+	private final Bucket[] buckets = new Bucket[Long.SIZE + 1];
+	private final PriorityQueue<Below> below = new PriorityQueue<Below>();
+	private long last = Long.MIN_VALUE; // the last f popped
+	private int size;
+	
+	public RadixAStar() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new Bucket();
+		}
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Takes a state with the lowest f off the heap. States with the same f
+	 * come out last in first out
+	 * 
+	 * @return The state. Null if empty
+	 */
+	@Override
+	public SearchState pop() {
+		if (size == 0) {
+			return null;
+		}
+		size--;
+		
+		// everything below is lower than everything in the buckets
+		if (!below.isEmpty()) {
+			return below.poll().state;
+		}
+		if (buckets[0].size == 0) {
+			redistribute();
+		}
+		return buckets[0].removeLast();
+	}
+	
+	/**
+	 * Adds a state
+	 * 
+	 * @param state
+	 *            The state to add. Must be a PrioritizedState
+	 * @throws ClassCastException
+	 *             Throws exception if the state is not a PrioritizedState
+	 * @return True
+	 */
+	@Override
+	public boolean add(SearchState state) {
+		long f = ((PrioritizedState) state).getF();
+		if (f < last) {
+			below.add(new Below(state, f));
+		} else {
+			buckets[bucket(f)].add(state, f);
+		}
+		size++;
+		return true;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends SearchState> states) {
+		return addAll(states.iterator());
+	}
+	
+	@Override
+	public boolean addAll(Iterator<? extends SearchState> states) {
+		boolean changed = false;
+		while (states.hasNext()) {
+			changed |= add(states.next());
+		}
+		return changed;
+	}
+	
+	/**
+	 * Helper function that finds the bucket of an f value, which is the
+	 * position of the highest bit it differs from the last f popped in. 0 if
+	 * they are the same
+	 */
+	private int bucket(long f) {
+		return Long.SIZE - Long.numberOfLeadingZeros(f ^ last);
+	}
+	
+	/**
+	 * Helper function that empties the first bucket with something in it when
+	 * bucket 0 is empty. The lowest f in it becomes the last f popped, and
+	 * everything in it moves to a lower bucket, the lowest ones to bucket 0
+	 */
+	private void redistribute() {
+		int i = 1;
+		while (buckets[i].size == 0) {
+			i++;
+		}
+		
+		Bucket bucket = buckets[i];
+		long min = bucket.keys[0];
+		for (int k = 1; k < bucket.size; k++) {
+			min = Math.min(min, bucket.keys[k]);
+		}
+		last = min;
+		for (int k = 0; k < bucket.size; k++) {
+			buckets[bucket(bucket.keys[k])].add(bucket.states[k],
+					bucket.keys[k]);
+		}
+		bucket.clear();
+	}
+	
+	/**
+	 * A growable list of states and their f values
+	 */
+	private static final class Bucket {
+		private SearchState[] states = new SearchState[4];
+		private long[] keys = new long[4];
+		private int size;
+		
+		private void add(SearchState state, long key) {
+			if (size == states.length) {
+				states = Arrays.copyOf(states, size * 2);
+				keys = Arrays.copyOf(keys, size * 2);
+			}
+			states[size] = state;
+			keys[size] = key;
+			size++;
+		}
+		
+		private SearchState removeLast() {
+			SearchState state = states[--size];
+			states[size] = null;
+			return state;
+		}
+		
+		private void clear() {
+			Arrays.fill(states, 0, size, null);
+			size = 0;
+		}
+	}
+	
+	/**
+	 * A state below the last f popped, ordered by f
+	 */
+	private static final class Below implements Comparable<Below> {
+		private final SearchState state;
+		private final long key;
+		
+		private Below(SearchState state, long key) {
+			this.state = state;
+			this.key = key;
+		}
+		
+		@Override
+		public int compareTo(Below other) {
+			return Long.compare(key, other.key);
+		}
+	}
+	
+}
@@ -1,6 +1,7 @@
 package search;
 
 import java.util.Collection;
+import java.util.Iterator;
 
 import state.SearchState;
 
@@ -20,4 +21,15 @@ public interface StatesContainer {
 	
 	public boolean addAll(Collection<? extends SearchState> states);
 	
+	/**
+	 * Adds the states an iterator goes through, see
+	 * LazySearchState.successorIterator(). A container may hold on to the
+	 * iterator and only take states from it when they are popped
+	 * 
+	 * @param states
+	 *            The iterator over the states to add
+	 * @return True if the container may have changed
+	 */
+	public boolean addAll(Iterator<? extends SearchState> states);
+	
 }
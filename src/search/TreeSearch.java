@@ -1,11 +1,19 @@
 package search;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import state.GraphSearchState;
+import state.LazySearchState;
 import state.SearchState;
+import state.SuccessorIterator;
 
 /**
  * The generic tree search algorithm that can become different tree search
  * strategies with different StatesContainer. Examples include DFS, BFS, and
- * AStar
+ * AStar. Given a ClosedSet, it becomes a graph search that drops duplicate
+ * GraphSearchStates. Successors of LazySearchStates are handed to the
+ * container as an iterator, so a DFS only generates the ones it gets to
  * 
  * @author chiao-yutuan
  * 
@@ -13,6 +21,7 @@ import state.SearchState;
 public class TreeSearch {
 	
 	private StatesContainer statesContainer;
+	private ClosedSet closedSet; // null for tree search
 	private int numExpanded;
 	
 	/**
@@ -32,14 +41,52 @@ public class TreeSearch {
 	}
 	
 	/**
-	 * Perform the tree search and find the next goal state
+	 * Constructor for graph search. Successors that are GraphSearchStates are
+	 * checked against the closed set when generated, and are dropped if some
+	 * state with the same signature and no higher g was generated before.
+	 * States that are not GraphSearchStates are searched as a tree
 	 * 
-	 * @return The next goal SearchState
+	 * @param statesContainer
+	 *            The container for the states. This will determine what kind of
+	 *            search it is
+	 * @param initial
+	 *            The initial state to be inserted into the container at
+	 *            construction time
+	 * @param closedSet
+	 *            The set of states generated so far. Usually empty
+	 */
+	public TreeSearch(StatesContainer statesContainer, SearchState initial,
+			ClosedSet closedSet) {
+		this(statesContainer, initial);
+		this.closedSet = closedSet;
+		if (initial instanceof GraphSearchState) {
+			closedSet.add((GraphSearchState) initial);
+		}
+	}
+	
+	/**
+	 * Perform the tree search and find the next goal state. Gives up if the
+	 * thread is interrupted, so that a search running on an executor can be
+	 * cancelled
+	 * 
+	 * @return The next goal SearchState. Null if there is none or the thread
+	 *         was interrupted
 	 */
 	public SearchState nextGoal() {
 		SearchState result = null;
 		while (!statesContainer.isEmpty()) {
+			if (Thread.currentThread().isInterrupted()) {
+				return null;
+			}
+			
 			SearchState toExpand = statesContainer.pop();
+			
+			// a state with the same signature and a lower g was generated
+			// after this one, no need to expand it again
+			if (closedSet != null && toExpand instanceof GraphSearchState
+					&& !closedSet.isCurrent((GraphSearchState) toExpand)) {
+				continue;
+			}
 			numExpanded++;
 			
 			// goal check
@@ -48,13 +95,68 @@ public class TreeSearch {
 			}
 			
 			// expand and insert successors
-			statesContainer.addAll(toExpand.successors());
+			if (toExpand instanceof LazySearchState) {
+				Iterator<SearchState> successors = ((LazySearchState) toExpand)
+						.successorIterator();
+				if (closedSet == null) {
+					statesContainer.addAll(successors);
+				} else {
+					statesContainer.addAll(new NotClosed(successors));
+				}
+			} else if (closedSet == null) {
+				statesContainer.addAll(toExpand.successors());
+			} else {
+				statesContainer.addAll(notClosed(toExpand.successors()));
+			}
 			
 		}
 		
 		return result;
 	}
 	
+	/**
+	 * Helper function that drops the successors that the closed set already
+	 * has
+	 * 
+	 * @param successors
+	 *            The successors generated
+	 * @return The successors that need to be searched
+	 */
+	private ArrayList<SearchState> notClosed(ArrayList<SearchState> successors) {
+		ArrayList<SearchState> open = new ArrayList<SearchState>();
+		for (SearchState successor : successors) {
+			if (!(successor instanceof GraphSearchState)
+					|| closedSet.add((GraphSearchState) successor)) {
+				open.add(successor);
+			}
+		}
+		return open;
+	}
+	
+	/**
+	 * Lazy version of notClosed() that drops the successors that the closed
+	 * set already has as they are generated
+	 */
+	private final class NotClosed extends SuccessorIterator {
+		private final Iterator<SearchState> successors;
+		
+		private NotClosed(Iterator<SearchState> successors) {
+			this.successors = successors;
+		}
+		
+		@Override
+		protected SearchState generate() {
+			while (successors.hasNext()) {
+				SearchState successor = successors.next();
+				if (!(successor instanceof GraphSearchState)
+						|| closedSet.add((GraphSearchState) successor)) {
+					return successor;
+				}
+			}
+			return null;
+		}
+	}
+	
 	public int getNumExpanded() {
 		return numExpanded;
 	}
@@ -0,0 +1,210 @@
+package state;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jgrapht.graph.SimpleWeightedGraph;
+import org.joda.time.Duration;
+
+import schedulable.Transportation;
+import activities.Location;
+
+/**
+ * The fastest travel time between every two locations of a graph, the same as
+ * TravelMatrix gives, without keeping n x n of them. The edges are kept in
+ * compressed sparse rows: the neighbours of each location sorted by id in one
+ * int array, with the travel times in a long array alongside. The fastest
+ * times from a location are found with Dijkstra the first time travel from
+ * it is looked up, and kept, so each lookup after that is indexing an array.
+ * A search only travels from the locations of its activities, so trips with
+ * thousands of locations stay small. The rows are kept in an
+ * AtomicReferenceArray, so it can be shared by searches running at the same
+ * time
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class CompactTravelGraph implements TravelGraph, Serializable {
+	private static final long serialVersionUID = -2310768722526614467L;
+	
+	private final HashMap<Location, Integer> ids;
+	private final Location[] locations;
+	private final int[] offsets; // first neighbour of each location
+	private final int[] neighbours;
+	private final long[] times;
+	private final Transportation[] transportations;
+	private final AtomicReferenceArray<long[]> rows; // null until looked up
+	private final ConcurrentHashMap<Long, Transportation> routes;
+	
+	/**
+	 * Constructor that takes the edges of a graph. The weight of an edge is
+	 * the duration of its Transportation
+	 * 
+	 * @param graph
+	 *            The graph with the locations and the transportation between
+	 *            them. Not changed
+	 */
+	public CompactTravelGraph(SimpleWeightedGraph<Location, Transportation> graph) {
+		int n = graph.vertexSet().size();
+		ids = new HashMap<Location, Integer>();
+		locations = graph.vertexSet().toArray(new Location[n]);
+		for (int i = 0; i < n; i++) {
+			ids.put(locations[i], i);
+		}
+		
+		// each edge is in the rows of both of its locations
+		offsets = new int[n + 1];
+		for (Transportation edge : graph.edgeSet()) {
+			offsets[ids.get(graph.getEdgeSource(edge)) + 1]++;
+			offsets[ids.get(graph.getEdgeTarget(edge)) + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		
+		// neighbour ids are packed with the edge numbers so that one sort
+		// puts both in order
+		Transportation[] edges = graph.edgeSet().toArray(
+				new Transportation[graph.edgeSet().size()]);
+		long[] packed = new long[offsets[n]];
+		int[] next = Arrays.copyOf(offsets, n);
+		for (int e = 0; e < edges.length; e++) {
+			int source = ids.get(graph.getEdgeSource(edges[e]));
+			int target = ids.get(graph.getEdgeTarget(edges[e]));
+			packed[next[source]++] = (long) target << 32 | e;
+			packed[next[target]++] = (long) source << 32 | e;
+		}
+		
+		neighbours = new int[offsets[n]];
+		times = new long[offsets[n]];
+		transportations = new Transportation[offsets[n]];
+		for (int i = 0; i < n; i++) {
+			Arrays.sort(packed, offsets[i], offsets[i + 1]);
+		}
+		for (int k = 0; k < packed.length; k++) {
+			Transportation edge = edges[(int) packed[k]];
+			neighbours[k] = (int) (packed[k] >>> 32);
+			times[k] = edge.getDuration().getMillis();
+			transportations[k] = edge;
+		}
+		
+		rows = new AtomicReferenceArray<long[]>(n);
+		routes = new ConcurrentHashMap<Long, Transportation>();
+	}
+	
+	@Override
+	public int getId(Location location) {
+		Integer id = ids.get(location);
+		return id == null ? NONE : id;
+	}
+	
+	/**
+	 * Get the fastest travel time between two locations, which may go through
+	 * other locations. See TravelGraph.getTime()
+	 */
+	@Override
+	public long getTime(int from, int to) {
+		return row(from)[to];
+	}
+	
+	/**
+	 * Get the fastest Transportation between two locations. It is the edge of
+	 * the graph if that is the fastest, or a Transportation covering the whole
+	 * route otherwise, which is made once for both ways. See
+	 * TravelGraph.getTransportation()
+	 */
+	@Override
+	public Transportation getTransportation(int from, int to) {
+		long time = row(from)[to];
+		if (from == to || time == UNREACHABLE) {
+			return null;
+		}
+		int k = find(from, to);
+		if (k >= 0 && times[k] == time) {
+			return transportations[k];
+		}
+		
+		Long pair = (long) Math.min(from, to) << 32 | Math.max(from, to);
+		Transportation route = routes.get(pair);
+		if (route == null) {
+			routes.putIfAbsent(pair, new Transportation(new Duration(time),
+					locations[Math.min(from, to)], locations[Math.max(from,
+							to)]));
+			route = routes.get(pair);
+		}
+		return route;
+	}
+	
+	/**
+	 * Helper function that gives the fastest travel times from a location,
+	 * finding them with Dijkstra the first time
+	 * 
+	 * @return The travel time to each location. UNREACHABLE for the ones that
+	 *         can't be reached
+	 */
+	private long[] row(int from) {
+		long[] row = rows.get(from);
+		if (row != null) {
+			return row;
+		}
+		
+		row = new long[locations.length];
+		Arrays.fill(row, UNREACHABLE);
+		row[from] = 0;
+		
+		// {time, location}, a location may be queued again once it gets closer
+		PriorityQueue<long[]> queue = new PriorityQueue<long[]>(16,
+				new Comparator<long[]>() {
+					@Override
+					public int compare(long[] a, long[] b) {
+						return Long.compare(a[0], b[0]);
+					}
+				});
+		queue.add(new long[] { 0, from });
+		while (!queue.isEmpty()) {
+			long[] next = queue.poll();
+			int at = (int) next[1];
+			if (next[0] > row[at]) {
+				continue;
+			}
+			for (int k = offsets[at]; k < offsets[at + 1]; k++) {
+				long time = next[0] + times[k];
+				if (time < row[neighbours[k]]) {
+					row[neighbours[k]] = time;
+					queue.add(new long[] { time, neighbours[k] });
+				}
+			}
+		}
+		
+		// another thread may have found the same row first
+		rows.compareAndSet(from, null, row);
+		return rows.get(from);
+	}
+	
+	/**
+	 * Helper function that finds where the edge between two locations is in
+	 * the row of the first
+	 * 
+	 * @return The position. Negative if there is no such edge
+	 */
+	private int find(int from, int to) {
+		return Arrays.binarySearch(neighbours, offsets[from],
+				offsets[from + 1], to);
+	}
+	
+	@Override
+	public Location getLocation(int id) {
+		return locations[id];
+	}
+	
+	@Override
+	public int size() {
+		return locations.length;
+	}
+	
+}
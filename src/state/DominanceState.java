@@ -0,0 +1,30 @@
+package state;
+
+/**
+ * An interface for search states that can dominate each other. Of the states
+ * with the same dominance key, the one with the lowest dominance value can
+ * reach everything the others can at no higher cost, so the others need not
+ * be searched
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public interface DominanceState extends GraphSearchState {
+	
+	/**
+	 * Return a key of what the states that can dominate each other have in
+	 * common
+	 * 
+	 * @return The dominance key. Must implement equals() and hashCode()
+	 */
+	public Object getDominanceKey();
+	
+	/**
+	 * Return the value to compare states with the same dominance key with. The
+	 * state with the lower value dominates
+	 * 
+	 * @return The dominance value
+	 */
+	public long getDominanceValue();
+	
+}
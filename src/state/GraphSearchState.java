@@ -0,0 +1,29 @@
+package state;
+
+/**
+ * An interface for search states that can be searched as a graph instead of a
+ * tree. States reached in different ways that would lead to the same futures
+ * share the same signature, so a graph search only needs to expand the one
+ * with the lowest g value
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public interface GraphSearchState extends SearchState {
+	
+	/**
+	 * Return a compact key of everything the future of this state depends on.
+	 * Two states with equal signatures have the same successors from here on
+	 * 
+	 * @return The signature. Must implement equals() and hashCode()
+	 */
+	public Object getSignature();
+	
+	/**
+	 * Return the cost of reaching this state
+	 * 
+	 * @return The g value
+	 */
+	public long getG();
+	
+}
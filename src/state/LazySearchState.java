@@ -0,0 +1,24 @@
+package state;
+
+import java.util.Iterator;
+
+/**
+ * An interface for search states that can generate their successors one at a
+ * time. A search that only looks at the first few successors, like DFS, then
+ * never pays for the rest
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public interface LazySearchState extends SearchState {
+	
+	/**
+	 * Return the successors of this state in the same order as successors(),
+	 * each one only generated when the iterator gets to it
+	 * 
+	 * @return An iterator over the successor search states. Doesn't support
+	 *         remove()
+	 */
+	public Iterator<SearchState> successorIterator();
+	
+}
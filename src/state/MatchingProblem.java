@@ -0,0 +1,125 @@
+package state;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+import time.TimeBlock;
+import activities.ActivitySpanningTree;
+
+/**
+ * The ASTs and TBs to match, numbered so that a matching can be kept as
+ * arrays of ints. Never changed after construction, so all MatchingStates of
+ * a search share it. TBs are told apart by their indices. ASTs are numbered by
+ * their indices, so the search is the same from run to run, and the TBs of
+ * each AST are tried in the order of estimated slack
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public final class MatchingProblem implements Serializable {
+	private static final long serialVersionUID = -3480905513370413619L;
+	private final List<ActivitySpanningTree> asts;
+	private final List<TimeBlock> tbs;
+	private final int[][] candidates; // TB ids each AST can match with
+	
+	/**
+	 * Constructor that numbers the ASTs in the order of their indices and the
+	 * TBs in the order they are first seen in the ASTs' availableTBs
+	 * 
+	 * @param asts
+	 *            The ASTs to match. Not changed
+	 */
+	public MatchingProblem(Set<ActivitySpanningTree> asts) {
+		ArrayList<ActivitySpanningTree> astList = new ArrayList<ActivitySpanningTree>(
+				asts);
+		Collections.sort(astList, new Comparator<ActivitySpanningTree>() {
+			@Override
+			public int compare(ActivitySpanningTree ast1,
+					ActivitySpanningTree ast2) {
+				return Integer.compare(ast1.getIndex(), ast2.getIndex());
+			}
+		});
+		ArrayList<TimeBlock> tbList = new ArrayList<TimeBlock>();
+		HashMap<Integer, Integer> ids = new HashMap<Integer, Integer>();
+		candidates = new int[astList.size()][];
+		
+		for (int ast = 0; ast < astList.size(); ast++) {
+			List<TimeBlock> available = bySlack(astList.get(ast));
+			candidates[ast] = new int[available.size()];
+			for (int i = 0; i < available.size(); i++) {
+				TimeBlock tb = available.get(i);
+				Integer id = ids.get(tb.getIndex());
+				if (id == null) {
+					id = tbList.size();
+					ids.put(tb.getIndex(), id);
+					tbList.add(tb);
+				}
+				candidates[ast][i] = id;
+			}
+		}
+		
+		this.asts = Collections.unmodifiableList(astList);
+		this.tbs = Collections.unmodifiableList(tbList);
+	}
+	
+	/**
+	 * Helper function that sorts the availableTBs of an AST by slack, the
+	 * length of the TB minus the time the activities of the AST take, from the
+	 * most to the least. The TBs with the most room are the most likely to
+	 * schedule. Ties are kept in the order of availableTBs
+	 * 
+	 * @param ast
+	 *            The AST
+	 * @return The sorted copy of availableTBs
+	 */
+	private static List<TimeBlock> bySlack(ActivitySpanningTree ast) {
+		final long sum = ast.getSumActivitiesTime().getMillis();
+		ArrayList<TimeBlock> sorted = new ArrayList<TimeBlock>(
+				ast.getAvailableTBs());
+		Collections.sort(sorted, new Comparator<TimeBlock>() {
+			@Override
+			public int compare(TimeBlock tb1, TimeBlock tb2) {
+				return Long.compare(slack(tb2), slack(tb1));
+			}
+			
+			private long slack(TimeBlock tb) {
+				return tb.getInterval().toDurationMillis() - sum;
+			}
+		});
+		return sorted;
+	}
+	
+	/**
+	 * The TBs an AST can match with
+	 * 
+	 * @param ast
+	 *            The id of the AST
+	 * @return The ids of the TBs, from the most slack to the least. Must not be
+	 *         changed
+	 */
+	public int[] getCandidates(int ast) {
+		return candidates[ast];
+	}
+	
+	public ActivitySpanningTree getAst(int ast) {
+		return asts.get(ast);
+	}
+	
+	public TimeBlock getTb(int tb) {
+		return tbs.get(tb);
+	}
+	
+	public int getNumAsts() {
+		return asts.size();
+	}
+	
+	public int getNumTbs() {
+		return tbs.size();
+	}
+	
+}
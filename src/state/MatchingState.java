@@ -2,70 +2,317 @@ package state;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
 import time.TimeBlock;
-import util.DeepCopy;
+import util.BipartiteMatcher;
 import activities.ActivitySpanningTree;
 
-public class MatchingState implements SearchState, Serializable {
+/**
+ * A partial matching of ASTs with TBs. Each state only keeps its parent and
+ * the one AST - TB pair it adds, over a MatchingProblem shared by the whole
+ * search, so generating a successor takes O(1) memory. The whole matching is
+ * put together by walking up to the initial state when it is needed. Successors
+ * branch on the AST with the fewest TBs left and are listed from the TB most
+ * likely to schedule, each one only generated when the search gets to it
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class MatchingState implements LazySearchState, Serializable {
 	
 	private static final long serialVersionUID = 4188017693668337015L;
-	private Set<ActivitySpanningTree> asts;
-	private HashMap<TimeBlock, ActivitySpanningTree> matches;
+	private static final int UNMATCHED = BipartiteMatcher.UNMATCHED;
+	private final MatchingProblem problem;
+	private final MatchingState parent; // null for the initial state
+	private final int ast; // id of the AST matched by this state
+	private final int tb; // id of the TB it is matched with
+	private final int numMatched;
+	private final Set<Pairing> nogoods; // shared by all states
 	
 	public MatchingState(Set<ActivitySpanningTree> asts) {
-		this.asts = asts;
-		matches = new HashMap<TimeBlock, ActivitySpanningTree>();
+		this(asts, new HashSet<Pairing>());
+	}
+	
+	/**
+	 * Constructor with a set of nogoods, the TB - AST pairs known to fail to
+	 * schedule. The set is shared by this state and all states generated from
+	 * it, so pairs added to it later are never matched again
+	 * 
+	 * @param asts
+	 *            The set of ASTs to match. Not changed
+	 * @param nogoods
+	 *            The TB - AST pairs that must not be matched
+	 */
+	public MatchingState(Set<ActivitySpanningTree> asts, Set<Pairing> nogoods) {
+		this.problem = new MatchingProblem(asts);
+		this.parent = null;
+		this.ast = UNMATCHED;
+		this.tb = UNMATCHED;
+		this.numMatched = 0;
+		this.nogoods = nogoods;
+	}
+	
+	/**
+	 * Constructor for successors
+	 * 
+	 * @param parent
+	 *            The state this state is generated from
+	 * @param ast
+	 *            The id of the AST to match
+	 * @param tb
+	 *            The id of the TB to match it with
+	 */
+	private MatchingState(MatchingState parent, int ast, int tb) {
+		this.problem = parent.problem;
+		this.parent = parent;
+		this.ast = ast;
+		this.tb = tb;
+		this.numMatched = parent.numMatched + 1;
+		this.nogoods = parent.nogoods;
 	}
 	
 	@Override
 	public ArrayList<SearchState> successors() {
 		ArrayList<SearchState> successors = new ArrayList<SearchState>();
+		Iterator<SearchState> itr = successorIterator();
+		while (itr.hasNext()) {
+			successors.add(itr.next());
+		}
+		return successors;
+	}
+	
+	/**
+	 * Overrides the LazySearchState's successorIterator(). The AST to branch
+	 * on is picked right away, but each TB is only checked for a complete
+	 * matching when the iterator gets to it. Nogoods of the AST added in the
+	 * meantime are skipped too
+	 * 
+	 * @return An iterator over the successors
+	 */
+	@Override
+	public Iterator<SearchState> successorIterator() {
+		// a pair found to fail after this state was generated
+		if (hasNogood()) {
+			return Collections.<SearchState> emptyList().iterator();
+		}
 		
-		// handle the next ast in the set
-		Iterator<ActivitySpanningTree> itr = asts.iterator();
-		if (itr.hasNext()) {
-			ActivitySpanningTree ast = itr.next();
-			asts.remove(ast);
-			
-			// for each tb that this ast can match with
-			for (TimeBlock tb : ast.getAvailableTBs()) {
-				
-				// if this tb hasn't been matched with another ast
-				if (!matches.containsKey(tb)) {
-					
-					// create a new state with that match and insert to
-					// successors
-					MatchingState newState = (MatchingState) DeepCopy
-							.copy(this);
-					
-					if (newState.matches.put(tb, ast) == null) {
-						successors.add(newState);
-					} else {
-						throw new IllegalStateException(
-								"Internal inconsistency. Duplicate matching to the same TB");
-					}
-					
+		if (numMatched == problem.getNumAsts()) {
+			throw new IllegalStateException("Unexceptedly out of tree nodes");
+		}
+		
+		int[] assignment = getAssignment();
+		BitSet used = getUsed(assignment);
+		
+		// handle the ast with the fewest tbs left first, so that a dead end
+		// is found as early as possible
+		int next = UNMATCHED;
+		int fewest = Integer.MAX_VALUE;
+		for (int ast = 0; ast < assignment.length; ast++) {
+			if (assignment[ast] == UNMATCHED) {
+				int numFree = numFree(ast, used);
+				if (numFree < fewest) {
+					next = ast;
+					fewest = numFree;
 				}
 			}
-			
-		} else {
-			throw new IllegalStateException("Unexceptedly out of tree nodes");
 		}
 		
-		return successors;
+		return new Successors(assignment, used, next);
 	}
 	
 	@Override
 	public boolean checkGoal() {
-		return asts.isEmpty();
+		return numMatched == problem.getNumAsts() && !hasNogood();
+	}
+	
+	/**
+	 * Checks if this state can lead to a goal at all, that is, if the ASTs
+	 * left can all be matched with TBs that are still free, without nogoods.
+	 * Runs a single bipartite matching, so calling this on the initial state
+	 * tells an infeasible problem apart before any search (Hall's condition)
+	 * 
+	 * @return True if there is some way to match the rest. False if otherwise
+	 */
+	public boolean isCompletable() {
+		if (hasNogood()) {
+			return false;
+		}
+		int[] assignment = getAssignment();
+		return matcher(assignment, getUsed(assignment)).hasSaturatingMatching();
+	}
+	
+	/**
+	 * Helper function that builds the bipartite graph of the ASTs with the TBs
+	 * they can still match with. A matched AST only has its TB, and the others
+	 * have the TBs that are still free, without nogoods. The ASTs left can all
+	 * be matched exactly when every AST can, so a state that can't lead to any
+	 * goal is never generated
+	 * 
+	 * @param assignment
+	 *            The TB id of each AST, UNMATCHED for the ones left
+	 * @param used
+	 *            The ids of the TBs already matched
+	 * @return The matcher, with the AST ids as left vertices and the TB ids as
+	 *         right vertices
+	 */
+	private BipartiteMatcher matcher(int[] assignment, BitSet used) {
+		int[][] adjacency = new int[assignment.length][];
+		for (int ast = 0; ast < assignment.length; ast++) {
+			if (assignment[ast] != UNMATCHED) {
+				adjacency[ast] = new int[] { assignment[ast] };
+				continue;
+			}
+			int[] candidates = problem.getCandidates(ast);
+			int[] free = new int[candidates.length];
+			int numFree = 0;
+			for (int candidate : candidates) {
+				if (!used.get(candidate) && !isNogood(ast, candidate)) {
+					free[numFree++] = candidate;
+				}
+			}
+			adjacency[ast] = Arrays.copyOf(free, numFree);
+		}
+		return new BipartiteMatcher(adjacency, problem.getNumTbs());
+	}
+	
+	/**
+	 * Helper function that counts the TBs an AST can still match with
+	 * 
+	 * @param ast
+	 *            The id of the AST
+	 * @param used
+	 *            The ids of the TBs already matched
+	 * @return The number of TBs not matched yet and not known to fail with the
+	 *         AST
+	 */
+	private int numFree(int ast, BitSet used) {
+		int numFree = 0;
+		for (int candidate : problem.getCandidates(ast)) {
+			if (!used.get(candidate) && !isNogood(ast, candidate)) {
+				numFree++;
+			}
+		}
+		return numFree;
+	}
+	
+	/**
+	 * Helper function that checks if any of the matches is a nogood
+	 * 
+	 * @return True if some TB - AST pair matched is known to fail. False if
+	 *         otherwise
+	 */
+	private boolean hasNogood() {
+		if (nogoods.isEmpty()) {
+			return false;
+		}
+		for (MatchingState state = this; state.parent != null; state = state.parent) {
+			if (isNogood(state.ast, state.tb)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Helper function that checks if matching the AST with the TB is known to
+	 * fail
+	 */
+	private boolean isNogood(int ast, int tb) {
+		return !nogoods.isEmpty()
+				&& nogoods.contains(new Pairing(problem.getTb(tb), problem
+						.getAst(ast)));
+	}
+	
+	/**
+	 * Helper function that finds the TBs matched in an assignment
+	 * 
+	 * @param assignment
+	 *            The TB id of each AST, UNMATCHED for the ones left
+	 * @return The ids of the TBs matched
+	 */
+	private BitSet getUsed(int[] assignment) {
+		BitSet used = new BitSet(problem.getNumTbs());
+		for (int matched : assignment) {
+			if (matched != UNMATCHED) {
+				used.set(matched);
+			}
+		}
+		return used;
 	}
 	
+	/**
+	 * Helper function that puts the matching together by walking up to the
+	 * initial state
+	 * 
+	 * @return The TB id of each AST id. UNMATCHED for the ones not matched yet
+	 */
+	private int[] getAssignment() {
+		int[] assignment = new int[problem.getNumAsts()];
+		Arrays.fill(assignment, UNMATCHED);
+		for (MatchingState state = this; state.parent != null; state = state.parent) {
+			assignment[state.ast] = state.tb;
+		}
+		return assignment;
+	}
+	
+	/**
+	 * Getter of the matches. The map is newly built. The TBs and ASTs are the
+	 * ones given to the initial state, not copies
+	 * 
+	 * @return The map of each matched TB to its AST
+	 */
 	public HashMap<TimeBlock, ActivitySpanningTree> getMatches() {
+		HashMap<TimeBlock, ActivitySpanningTree> matches = new HashMap<TimeBlock, ActivitySpanningTree>();
+		for (MatchingState state = this; state.parent != null; state = state.parent) {
+			matches.put(problem.getTb(state.tb), problem.getAst(state.ast));
+		}
 		return matches;
 	}
 	
+	/**
+	 * The successors of a state, one for each TB the AST can match with, from
+	 * the most slack. The bipartite graph is built once, and the matching of
+	 * all ASTs is only found for the first candidate. Each candidate after
+	 * that takes one augmenting path search. Nogoods of other ASTs found in
+	 * the meantime are left to the successors to find
+	 */
+	private final class Successors extends SuccessorIterator {
+		private final BitSet used;
+		private final int ast;
+		private final int[] candidates;
+		private final BipartiteMatcher matcher;
+		private int k; // position of the next candidate to try
+		
+		private Successors(int[] assignment, BitSet used, int ast) {
+			this.used = used;
+			this.ast = ast;
+			this.candidates = problem.getCandidates(ast);
+			this.matcher = matcher(assignment, used);
+		}
+		
+		@Override
+		protected SearchState generate() {
+			while (k < candidates.length) {
+				int candidate = candidates[k++];
+				
+				// if this tb hasn't been matched with another ast, isn't known
+				// to fail with this ast, and the rest of the asts can still be
+				// matched
+				if (!used.get(candidate) && !isNogood(ast, candidate)
+						&& matcher.canMatch(ast, candidate)) {
+					return new MatchingState(MatchingState.this, ast,
+							candidate);
+				}
+			}
+			return null;
+		}
+	}
+	
 }
@@ -0,0 +1,69 @@
+package state;
+
+import java.io.Serializable;
+
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+
+import time.TimeBlock;
+import activities.ActivitySpanningTree;
+
+/**
+ * A TB - AST pair known to fail, kept as a nogood. The TB is identified by its
+ * index, the same way MatchingProblem tells TBs apart, so the pair is
+ * recognized whichever AST's availableTBs the TB came from. The AST is
+ * identified by identity, since MatchingProblem keeps ASTs that share an
+ * index apart
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public final class Pairing implements Serializable {
+	private static final long serialVersionUID = 2717407263915308143L;
+	private final int tbIndex;
+	private final ActivitySpanningTree ast;
+	
+	/**
+	 * Constructor with the TB and AST of the pair
+	 * 
+	 * @param tb
+	 *            The TB of the pair
+	 * @param ast
+	 *            The AST of the pair
+	 */
+	public Pairing(TimeBlock tb, ActivitySpanningTree ast) {
+		this.tbIndex = tb.getIndex();
+		this.ast = ast;
+	}
+	
+	/**
+	 * Overrides the object equals() method. Same TB index and the same AST
+	 * object. Consistent with hashCode()
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof Pairing) {
+			Pairing other = (Pairing) obj;
+			return tbIndex == other.tbIndex && ast == other.ast;
+		}
+		return false;
+	}
+	
+	/**
+	 * Overrides the object hashCode() method. Creates a hash using the TB index
+	 * and the identity of the AST. Consistent with equals()
+	 */
+	@Override
+	public int hashCode() {
+		return new HashCodeBuilder().append(tbIndex)
+				.append(System.identityHashCode(ast)).toHashCode();
+	}
+	
+	public int getTbIndex() {
+		return tbIndex;
+	}
+	
+	public ActivitySpanningTree getAst() {
+		return ast;
+	}
+	
+}
@@ -0,0 +1,20 @@
+package state;
+
+/**
+ * An interface for search states that a best-first search orders by a
+ * number, so that containers can compare them as longs instead of through
+ * compareTo()
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public interface PrioritizedState extends SearchState {
+	
+	/**
+	 * Return the priority of this state. Lower is expanded first
+	 * 
+	 * @return The f value, g plus h
+	 */
+	public long getF();
+	
+}
@@ -2,11 +2,14 @@ package state;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.jgrapht.graph.SimpleWeightedGraph;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
@@ -14,45 +17,112 @@ import org.joda.time.Duration;
 import schedulable.Activity;
 import schedulable.Schedulable;
 import schedulable.Transportation;
+import time.ArrayTimeline;
 import time.TimeBlock;
-import time.Timeline;
-import util.DeepCopy;
+import util.Util;
 import activities.Location;
 
 /**
  * This is the state that the Scheduler uses to schedule a set of activities in
  * an AST to a timeline in a TB. A state consists of the TB related to this
  * scheduling procedure, the graph with location and transportation information
- * between locations and a set of activities to schedule
+ * between locations and a set of activities to schedule. Successors don't copy
+ * the TB. They point to their parent and only keep the tail of the TB they
+ * scheduled on, so the whole TB is only put together when getTb() is called.
+ * The activities are numbered once per search, and each state only keeps the
+ * unscheduled ones as bits
  * 
  * @author chiao-yutuan
  * 
  */
-public class SchedulingState implements SearchState,
-		Comparable<SchedulingState>, Serializable {
+public class SchedulingState implements DominanceState, LazySearchState,
+		PrioritizedState, Comparable<SchedulingState>, Serializable {
 	private static final long serialVersionUID = -6014222737627795512L;
-	private TimeBlock tb;
+	private static final long UNREACHABLE = TravelGraph.UNREACHABLE;
+	private static final int END = -1; // scheduled() the end activity
+	private SchedulingState parent; // null for the initial state
+	private TimeBlock tb; // the whole TB for the initial state, a tail
+							// otherwise
+	private TimeBlock wholeTb; // tb merged with the parents' tails
 	private SimpleWeightedGraph<Location, Transportation> graph;
-	public HashSet<Activity> activities;
+	private TravelGraph travelGraph; // travel times of the graph
+	private ActivityIndex index; // shared by all states of a search
+	private long[] remaining; // bit i is set if activity i is unscheduled
+	private int at; // index of the location of the last activity
+	private boolean ended; // scheduled() the end activity
+	private long g; // last end time of the TB in milliseconds
+	private long h; // sum duration of unscheduled activities in milliseconds
+	private long travel; // lower bound of the travel left in milliseconds
+	private long tbHash; // longHashCode() of the whole TB
+	private long activitiesHash; // XOR of longHashCode() of the activities
+	private transient DominanceKey dominanceKey;
+	private transient long nextStart; // see getDominanceValue()
 	
 	/**
-	 * Constructor with all fields. TB and the graph are taken by reference. The
-	 * set of activities is recreated
+	 * Constructor with all fields. TB, the graph and the travel graph are
+	 * taken by reference, so the travel graph can be shared between searches.
+	 * The activities are numbered, the set itself isn't kept
 	 * 
 	 * @param tb
 	 *            The TB to schedule on
 	 * @param graph
 	 *            The graph with location and transporation informations
+	 * @param travelGraph
+	 *            The travel times of the graph, see Scheduler.travelGraph()
 	 * @param activities
 	 *            The set of activities yet to schedule
 	 */
 	public SchedulingState(TimeBlock tb,
 			SimpleWeightedGraph<Location, Transportation> graph,
-			Set<Activity> activities) {
+			TravelGraph travelGraph, Set<Activity> activities) {
 		// create an initial state based on the paired TB and AST given
 		this.tb = tb;
+		this.wholeTb = tb;
 		this.graph = graph;
-		this.activities = new HashSet<Activity>(activities);
+		this.travelGraph = travelGraph;
+		Location current = tb.getStartLocation();
+		Map.Entry<DateTime, Schedulable> last = tb.getLastScheduled();
+		if (last != null && last.getValue() instanceof Activity) {
+			current = ((Activity) last.getValue()).location;
+		}
+		this.index = new ActivityIndex(activities, current,
+				tb.getEndLocation(), travelGraph);
+		this.remaining = new long[(index.activities.length + 63) >>> 6];
+		for (int i = 0; i < index.activities.length; i++) {
+			remaining[i >>> 6] |= 1L << i;
+			h += index.durations[i];
+			activitiesHash ^= index.hashes[i];
+		}
+		this.at = index.getLocation(current);
+		this.g = tb.lastEndTime().getMillis();
+		this.travel = travelBound();
+		this.tbHash = tb.longHashCode();
+	}
+	
+	/**
+	 * Constructor for successors. The tail is taken by reference and the bits
+	 * of the unscheduled activities are copied. G, h, the location and the
+	 * hashes are the parent's until scheduled() is called
+	 * 
+	 * @param parent
+	 *            The state this state is generated from
+	 * @param tail
+	 *            The tail of the TB to schedule on, see TimeBlock.tail()
+	 */
+	private SchedulingState(SchedulingState parent, TimeBlock tail) {
+		this.parent = parent;
+		this.tb = tail;
+		this.graph = parent.graph;
+		this.travelGraph = parent.travelGraph;
+		this.index = parent.index;
+		this.remaining = parent.remaining.clone();
+		this.at = parent.at;
+		this.ended = parent.ended;
+		this.g = parent.g;
+		this.h = parent.h;
+		this.travel = parent.travel;
+		this.tbHash = parent.tbHash;
+		this.activitiesHash = parent.activitiesHash;
 	}
 	
 	/**
@@ -65,8 +135,25 @@ public class SchedulingState implements SearchState,
 	@Override
 	public ArrayList<SearchState> successors() {
 		ArrayList<SearchState> successors = new ArrayList<SearchState>();
-		
-		Timeline scheduledActivities = tb.getScheduledActivities();
+		Iterator<SearchState> itr = successorIterator();
+		while (itr.hasNext()) {
+			successors.add(itr.next());
+		}
+		return successors;
+	}
+	
+	/**
+	 * Overrides the LazySearchState's successorIterator(). Each unscheduled
+	 * activity is only scheduled on a new tail when the iterator gets to it
+	 * 
+	 * @return An iterator over the successors
+	 */
+	@Override
+	public Iterator<SearchState> successorIterator() {
+		// work on a tail so that the TB of this state stays untouched
+		TimeBlock current = tb.tail();
+		long lastHash = current.longHashCode();
+		ArrayTimeline scheduledActivities = current.getScheduledActivities();
 		
 		// if nothing scheduled yet, schedule startLocation
 		if (scheduledActivities.isEmpty()
@@ -75,81 +162,95 @@ public class SchedulingState implements SearchState,
 			Activity start = new Activity("At start location", new Duration(0),
 					tb.getStartLocation());
 			
-			tb.scheduleBeforeTb(start);
+			current.scheduleBeforeTb(start);
 			
 		}
 		
-		// if out of activities, schedule to return to endLocation
-		if (activities.isEmpty()) {
-			Activity end = new Activity("At end location", new Duration(0),
-					tb.getEndLocation());
-			
-			TreeMap<DateTime, Schedulable> schedule = tb
-					.getScheduledActivities().getSchedule();
-			Schedulable last = schedule.lastEntry().getValue();
-			if (last instanceof Activity) {
-				SchedulingState newState = this.clone();
-				Transportation edge;
-				if (!((Activity) last).location.equals(tb.getEndLocation())) {
-					edge = graph.getEdge(((Activity) tb.getLastScheduled()
-							.getValue()).location, end.location);
-					if (edge != null
-							&& newState.tb
-									.scheduleAfter(tb.lastEndTime(), edge)
-							&& newState.tb.scheduleAfterTb(end)) {
-						
-						successors.add(newState);
-					}
-				} else if (!last.equals(end)) {
-					if (newState.tb.scheduleAfterTb(end)) {
-						
-						successors.add(newState);
-					}
-				}
-			}
-			return successors;
-			
-		}
+		return new Successors(current, lastHash);
+	}
+	
+	/**
+	 * Helper function for successors() that schedules going back to
+	 * endLocation once out of activities
+	 * 
+	 * @param current
+	 *            The tail of this state's TB
+	 * @param lastHash
+	 *            longHashCode() of the tail
+	 * @return The successor. Null if it can't be scheduled
+	 */
+	private SchedulingState scheduleEnd(TimeBlock current, long lastHash) {
+		Activity end = new Activity("At end location", new Duration(0),
+				tb.getEndLocation());
 		
-		// go through all unscheduled activities
-		for (Activity activity : activities) {
-			SchedulingState newState = this.clone();
-			
-			// find last activity
-			Schedulable last = tb.getLastScheduled().getValue();
-			
+		Schedulable last = current.getLastScheduled().getValue();
+		if (last instanceof Activity) {
+			SchedulingState newState = successor(current);
 			Transportation edge;
-			// if the two activities have different locations
-			if (!((Activity) last).location.equals(activity.location)) {
-				edge = graph.getEdge(((Activity) last).location,
-						activity.location);
-				
-				// if you can schedule this activity meeting constraints,
-				// add as a successor
+			if (at != index.endLocation) {
+				edge = transportation(at, index.endLocation);
 				if (edge != null
-						&& newState.tb.scheduleAfter(newState.tb.lastEndTime(),
-								edge)
-						&& newState.tb.scheduleAfter(newState.tb.lastEndTime(),
-								activity)
-						&& newState.activities.remove(activity)
-						&& newState.forwardChecking()) {
-					
-					successors.add(newState);
+						&& newState.tb.scheduleAfter(current.lastEndTime(),
+								edge) && newState.tb.scheduleAfterTb(end)) {
 					
+					newState.scheduled(END, lastHash);
+					return newState;
 				}
-			} else { // if two activities are at the same location
-				if (newState.tb.scheduleAfter(newState.tb.lastEndTime(),
-						activity)
-						&& newState.activities.remove(activity)
-						&& newState.forwardChecking()) {
-					successors.add(newState);
+			} else if (!last.equals(end)) {
+				if (newState.tb.scheduleAfterTb(end)) {
 					
+					newState.scheduled(END, lastHash);
+					return newState;
 				}
 			}
-			
 		}
+		return null;
+	}
+	
+	/**
+	 * Helper function for successors() that schedules an unscheduled activity
+	 * next
+	 * 
+	 * @param current
+	 *            The tail of this state's TB
+	 * @param lastHash
+	 *            longHashCode() of the tail
+	 * @param i
+	 *            The index of the activity
+	 * @return The successor. Null if it can't be scheduled or fails forward
+	 *         checking
+	 */
+	private SchedulingState scheduleActivity(TimeBlock current, long lastHash,
+			int i) {
+		Activity activity = index.activities[i];
+		SchedulingState newState = successor(current);
 		
-		return successors;
+		Transportation edge;
+		// if the two activities have different locations
+		if (at != index.locationOf[i]) {
+			edge = transportation(at, index.locationOf[i]);
+			
+			// if you can schedule this activity meeting constraints,
+			// add as a successor
+			if (edge != null
+					&& newState.tb.scheduleAfter(newState.tb.lastEndTime(),
+							edge)
+					&& newState.tb.scheduleAfter(newState.tb.lastEndTime(),
+							activity)) {
+				newState.scheduled(i, lastHash);
+				if (newState.forwardChecking()) {
+					return newState;
+				}
+			}
+		} else { // if two activities are at the same location
+			if (newState.tb.scheduleAfter(newState.tb.lastEndTime(), activity)) {
+				newState.scheduled(i, lastHash);
+				if (newState.forwardChecking()) {
+					return newState;
+				}
+			}
+		}
+		return null;
 	}
 	
 	/**
@@ -162,7 +263,7 @@ public class SchedulingState implements SearchState,
 	@Override
 	public boolean checkGoal() {
 		
-		if (activities.isEmpty() && tb.getLastScheduled() != null) {
+		if (isDone() && tb.getLastScheduled() != null) {
 			Schedulable lastScheduled = tb.getLastScheduled().getValue();
 			if (lastScheduled instanceof Activity) {
 				Activity activity = ((Activity) lastScheduled);
@@ -175,33 +276,70 @@ public class SchedulingState implements SearchState,
 	
 	/**
 	 * Helper function that performs forward checking for successors(). It goes
-	 * through all unscheduled activities, update their legaltime to reflect the
-	 * last scheduled and see if there is still enough legal time to schedule
-	 * this unscheduled activity
+	 * through all unscheduled activities and see if there is still enough legal
+	 * time after the last scheduled to schedule this unscheduled activity. The
+	 * legal times are only read, so the activities are shared between states.
+	 * Also fails if some location left can't be reached at all
 	 * 
 	 * @return True if all unscheduled activities returned true for their forwar
-	 *         checks. This method can return false if at least one activity
-	 *         didn't pass their forward check or setEarliestAvailable()
-	 *         returned false
+	 *         checks. False if at least one activity didn't pass their forward
+	 *         check
 	 */
 	private boolean forwardChecking() {
-		// update each activity's legal time
-		// and check if still have enough time to schedule it
-		DateTime earliestFree = tb.lastEndTime();
-		for (Activity activity : activities) {
-			if (activity.legalTimeline.setEarliestAvailable(earliestFree)
-					&& !activity.forwardChecking()) {
+		if (travel == UNREACHABLE) {
+			return false;
+		}
+		DateTime earliestFree = new DateTime(g);
+		for (int i = nextRemaining(0); i >= 0; i = nextRemaining(i + 1)) {
+			if (!index.activities[i].forwardChecking(earliestFree)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Helper function that checks if all activities are scheduled
+	 * 
+	 * @return True if none is left. False if otherwise
+	 */
+	private boolean isDone() {
+		for (long word : remaining) {
+			if (word != 0) {
 				return false;
 			}
-			
 		}
 		return true;
 	}
 	
+	/**
+	 * Helper function that finds the next unscheduled activity
+	 * 
+	 * @param from
+	 *            The index to start looking at
+	 * @return The index of the activity. -1 if there is none
+	 */
+	private int nextRemaining(int from) {
+		int w = from >>> 6;
+		if (w >= remaining.length) {
+			return -1;
+		}
+		long word = remaining[w] & (-1L << from);
+		while (word == 0) {
+			if (++w == remaining.length) {
+				return -1;
+			}
+			word = remaining[w];
+		}
+		return (w << 6) + Long.numberOfTrailingZeros(word);
+	}
+	
 	/**
 	 * Implements compareTo() for the interface Comparable so that states with
-	 * the lowest h value is placed on top of the priority queue. G value is the
+	 * the lowest f value is placed on top of the priority queue. G value is the
 	 * last end time of the TB. H value is the sum of all unscheduled activities
+	 * plus a lower bound of the travel left. Both are kept up to date as
+	 * activities get scheduled, so comparing is just comparing two longs
 	 * 
 	 * @param other
 	 *            The SchedulingState to compare with
@@ -211,42 +349,191 @@ public class SchedulingState implements SearchState,
 	 */
 	
 	public int compareTo(SchedulingState other) {
+		return Long.compare(getF(), other.getF());
+	}
+	
+	/**
+	 * Helper function for successors() that updates g, h, the location and the
+	 * hashes after an activity is scheduled on the tail of this state. The
+	 * activity is taken off the unscheduled activities. The tail shares only
+	 * the last scheduled of the parent with the parent's whole TB, so XORing
+	 * the hashes of the tail and of the parent's last scheduled into the
+	 * parent's gives the hash of the whole TB
+	 * 
+	 * @param activity
+	 *            The index of the activity just scheduled. END for the
+	 *            activity at endLocation
+	 * @param lastHash
+	 *            longHashCode() of the tail of the parent's TB, which only has
+	 *            the parent's last scheduled
+	 */
+	private void scheduled(int activity, long lastHash) {
+		g = tb.lastEndTime().getMillis();
+		tbHash ^= lastHash ^ tb.longHashCode();
+		if (activity == END) {
+			at = index.endLocation;
+			ended = true;
+		} else {
+			remaining[activity >>> 6] &= ~(1L << activity);
+			h -= index.durations[activity];
+			activitiesHash ^= index.hashes[activity];
+			at = index.locationOf[activity];
+		}
+		travel = travelBound();
+	}
+	
+	/**
+	 * Helper function that finds a lower bound of the travel left. From where
+	 * the last activity is, every location of the unscheduled activities has to
+	 * be visited before ending at endLocation. The routes taken connect all of
+	 * them, so they cost at least a minimum spanning tree of those locations
+	 * with the fastest travel times as weights, found with Prim's algorithm.
+	 * Moving to a location costs at least as much as the bound goes down, so
+	 * the bound is consistent as well as admissible
+	 * 
+	 * @return The weight of the minimum spanning tree in milliseconds.
+	 *         UNREACHABLE if some location can't be reached
+	 */
+	private long travelBound() {
+		BitSet toVisit = new BitSet(index.locations.length);
+		toVisit.set(index.endLocation);
+		for (int i = nextRemaining(0); i >= 0; i = nextRemaining(i + 1)) {
+			toVisit.set(index.locationOf[i]);
+		}
+		toVisit.clear(at);
+		if (toVisit.isEmpty()) {
+			return 0;
+		}
+		
+		int from = index.travelIds[at];
+		int[] ids = new int[toVisit.cardinality()];
+		int n = 0;
+		for (int location = toVisit.nextSetBit(0); location >= 0; location = toVisit
+				.nextSetBit(location + 1)) {
+			ids[n] = index.travelIds[location];
+			if (from == TravelGraph.NONE || ids[n] == TravelGraph.NONE) {
+				return UNREACHABLE;
+			}
+			n++;
+		}
 		
-		return tb
-				.lastEndTime()
-				.plus(sumActivitiesTime())
-				.compareTo(
-						other.tb.lastEndTime().plus(other.sumActivitiesTime()));
+		long[] distance = new long[n]; // cheapest edge into the tree
+		for (int i = 0; i < n; i++) {
+			distance[i] = travelGraph.getTime(from, ids[i]);
+		}
 		
+		long sum = 0;
+		for (int added = 0; added < n; added++) {
+			int next = -1;
+			for (int i = 0; i < n; i++) {
+				if (distance[i] >= 0
+						&& (next == -1 || distance[i] < distance[next])) {
+					next = i;
+				}
+			}
+			if (distance[next] == UNREACHABLE) {
+				return UNREACHABLE;
+			}
+			sum += distance[next];
+			distance[next] = -1;
+			
+			for (int i = 0; i < n; i++) {
+				if (distance[i] >= 0) {
+					distance[i] = Math.min(distance[i],
+							travelGraph.getTime(ids[next], ids[i]));
+				}
+			}
+		}
+		return sum;
 	}
 	
 	/**
-	 * Helper function that adds the duration of all unscheduled activities
-	 * together
+	 * Helper function that finds the fastest way between two locations, which
+	 * may go through other locations
 	 * 
-	 * @return The sum duration of all unscheduled activities
+	 * @param from
+	 *            The index of the location to travel from
+	 * @param to
+	 *            The index of the location to travel to
+	 * @return The transportation. Null if there is none
 	 */
-	private Duration sumActivitiesTime() {
-		Duration sum = new Duration(0);
-		for (Activity current : activities) {
-			sum = sum.plus(current.getDuration());
+	private Transportation transportation(int from, int to) {
+		int fromId = index.travelIds[from];
+		int toId = index.travelIds[to];
+		if (fromId == TravelGraph.NONE || toId == TravelGraph.NONE) {
+			return null;
 		}
-		return sum;
+		return travelGraph.getTransportation(fromId, toId);
+	}
+	
+	/**
+	 * Overrides the GraphSearchState's getSignature(). What can still be
+	 * scheduled only depends on the unscheduled activities, where the last
+	 * activity is and when the next thing can start, so states that agree on
+	 * those have the same successors
+	 * 
+	 * @return The signature of this state
+	 */
+	@Override
+	public Object getSignature() {
+		return Arrays.asList(getDominanceKey(), getDominanceValue());
+	}
+	
+	/**
+	 * Overrides the DominanceState's getDominanceKey(). The unscheduled
+	 * activities, the location of the last activity and whether the end
+	 * activity is scheduled. Of two states with the same key, the one whose
+	 * next thing can start earlier can schedule anything the other can at the
+	 * same time or earlier. This is safe with forward checking since legal
+	 * times only get fewer as time goes on. Scheduling the end activity where
+	 * the last activity already is changes neither of the first two, so
+	 * without the last one the goal would be dropped for its parent
+	 * 
+	 * @return The dominance key of this state
+	 */
+	@Override
+	public Object getDominanceKey() {
+		if (dominanceKey == null) {
+			Map.Entry<DateTime, Schedulable> last = tb.getLastScheduled();
+			nextStart = g;
+			
+			// nothing can start where a 0ms schedulable starts
+			if (last != null && last.getKey().getMillis() == g) {
+				nextStart++;
+			}
+			dominanceKey = new DominanceKey(index, remaining, at, ended);
+		}
+		return dominanceKey;
+	}
+	
+	/**
+	 * Overrides the DominanceState's getDominanceValue(). The earliest time the
+	 * next thing can start, which is the last end time, or 1ms after that if
+	 * the last schedulable is 0ms
+	 * 
+	 * @return The earliest next start time in milliseconds
+	 */
+	@Override
+	public long getDominanceValue() {
+		getDominanceKey();
+		return nextStart;
 	}
 	
 	/**
 	 * Overrides the object equals() method. Checks all fields to see if
-	 * equals(). Consistent with hashCode()
+	 * equals(). Consistent with hashCode(). States are only compared within a
+	 * search, so the graph has to be the same one. The hashes are compared
+	 * first so that different states rarely need their TBs put together
 	 */
 	@Override
 	public boolean equals(Object obj) {
 		if (obj instanceof SchedulingState) {
 			SchedulingState other = (SchedulingState) obj;
 			
-			if (tb.equals(other.tb)
-					&& graph.vertexSet().equals(other.graph.vertexSet())
-					&& graph.edgeSet().equals(other.graph.edgeSet())
-					&& activities.equals(other.activities)) {
+			if (longHashCode() == other.longHashCode()
+					&& graph == other.graph
+					&& sameActivities(other)
+					&& getTb().equals(other.getTb())) {
 				return true;
 			}
 			
@@ -255,48 +542,291 @@ public class SchedulingState implements SearchState,
 	}
 	
 	/**
-	 * Overrides the object hashCode() method. Creates a hash using all fields
-	 * in the class. Consistent with equals()
+	 * Helper function of equals() that checks if two states have the same
+	 * unscheduled activities. States of the same search can just compare bits
+	 */
+	private boolean sameActivities(SchedulingState other) {
+		if (index == other.index) {
+			return Arrays.equals(remaining, other.remaining);
+		}
+		return getActivities().equals(other.getActivities());
+	}
+	
+	/**
+	 * Overrides the object hashCode() method. See longHashCode(). Consistent
+	 * with equals()
 	 */
 	@Override
 	public int hashCode() {
-		
-		return new HashCodeBuilder().append(tb).append(graph.vertexSet())
-				.append(graph.edgeSet()).append(activities).toHashCode();
-		
+		long hash = longHashCode();
+		return (int) (hash ^ (hash >>> 32));
 	}
 	
 	/**
-	 * Overrides the object clone() method. This method creates a deep copy of
-	 * this state except the graph, which is passed by reference, because it is
-	 * rarely necessary to clone a copy of the graph
+	 * 64-bit hash of the whole TB and the unscheduled activities. Kept up to
+	 * date in O(1) per scheduled item instead of being computed from the whole
+	 * TB. Consistent with equals()
+	 * 
+	 * @return The hash
+	 */
+	public long longHashCode() {
+		return tbHash ^ Util.mix(activitiesHash);
+	}
+	
+	/**
+	 * Overrides the object clone() method. The clone is a successor of this
+	 * state that hasn't scheduled anything yet, so nothing but the bits of the
+	 * unscheduled activities is copied
 	 * 
 	 * @return the copy of the state
 	 */
 	@Override
 	public SchedulingState clone() {
-		TimeBlock tbClone = (TimeBlock) DeepCopy.copy(tb);
-		@SuppressWarnings("unchecked")
-		HashSet<Activity> activitiesClone = (HashSet<Activity>) DeepCopy
-				.copy(activities);
-		SchedulingState clone = new SchedulingState(tbClone, graph,
-				activitiesClone);
-		
-		return clone;
+		return successor(tb);
+	}
+	
+	/**
+	 * Helper function that creates a successor of this state that will
+	 * schedule on the tail of the given TB
+	 * 
+	 * @param current
+	 *            The TB to take the tail of. Either the TB of this state or a
+	 *            tail of it
+	 * @return The successor state
+	 */
+	private SchedulingState successor(TimeBlock current) {
+		return new SchedulingState(this, current.tail());
 	}
 	
 	/************************** Getters ***************************/
 	
+	/**
+	 * Getter of the TB. Merges the tails of all states from the initial state
+	 * down to this one into a new TB the first time it is called
+	 * 
+	 * @return The TB with everything scheduled so far
+	 */
 	public TimeBlock getTb() {
-		return tb;
+		if (wholeTb == null) {
+			// find the closest ancestor that already has its whole TB
+			ArrayList<TimeBlock> tails = new ArrayList<TimeBlock>();
+			SchedulingState state = this;
+			while (state.wholeTb == null) {
+				tails.add(state.tb);
+				state = state.parent;
+			}
+			
+			TimeBlock merged = new TimeBlock(state.wholeTb);
+			for (int i = tails.size() - 1; i >= 0; i--) {
+				if (!merged.merge(tails.get(i))) {
+					throw new IllegalStateException(
+							"Internal inconsistency. Tails overlap");
+				}
+			}
+			wholeTb = merged;
+		}
+		return wholeTb;
+	}
+	
+	public long getG() {
+		return g;
+	}
+	
+	/**
+	 * Getter of h, the sum duration of the unscheduled activities plus a lower
+	 * bound of the travel left. See travelBound(). A state that can't reach
+	 * some location is never generated as a successor, so only the initial
+	 * state can have no travel bound, which then counts as 0
+	 * 
+	 * @return H in milliseconds
+	 */
+	public long getH() {
+		return travel == UNREACHABLE ? h : h + travel;
+	}
+	
+	@Override
+	public long getF() {
+		return g + getH();
 	}
 	
 	public SimpleWeightedGraph<Location, Transportation> getGraph() {
 		return graph;
 	}
 	
+	public TravelGraph getTravelGraph() {
+		return travelGraph;
+	}
+	
+	/**
+	 * Getter of the unscheduled activities. The set is newly built from the
+	 * bits, so changing it doesn't affect this state
+	 * 
+	 * @return The set of unscheduled activities
+	 */
 	public Set<Activity> getActivities() {
+		HashSet<Activity> activities = new HashSet<Activity>();
+		for (int i = nextRemaining(0); i >= 0; i = nextRemaining(i + 1)) {
+			activities.add(index.activities[i]);
+		}
 		return activities;
 	}
 	
+	/**
+	 * The dominance key of a SchedulingState. See getDominanceKey()
+	 */
+	private static final class DominanceKey {
+		private final ActivityIndex index;
+		private final long[] remaining;
+		private final int at;
+		private final boolean ended;
+		
+		private DominanceKey(ActivityIndex index, long[] remaining, int at,
+				boolean ended) {
+			this.index = index;
+			this.remaining = remaining;
+			this.at = at;
+			this.ended = ended;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof DominanceKey) {
+				DominanceKey other = (DominanceKey) obj;
+				return index == other.index && at == other.at
+						&& ended == other.ended
+						&& Arrays.equals(remaining, other.remaining);
+			}
+			return false;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Arrays.hashCode(remaining) + at)
+					+ (ended ? 1 : 0);
+		}
+	}
+	
+	/**
+	 * The successors of a state. Going back to endLocation if out of
+	 * activities, otherwise one for each unscheduled activity in index order
+	 */
+	private final class Successors extends SuccessorIterator {
+		private final TimeBlock current;
+		private final long lastHash;
+		private int i; // index of the next activity to try. -1 when done
+		private boolean endTried;
+		
+		private Successors(TimeBlock current, long lastHash) {
+			this.current = current;
+			this.lastHash = lastHash;
+			this.i = nextRemaining(0);
+		}
+		
+		@Override
+		protected SearchState generate() {
+			// if out of activities, schedule to return to endLocation
+			if (isDone()) {
+				if (!endTried) {
+					endTried = true;
+					return scheduleEnd(current, lastHash);
+				}
+				return null;
+			}
+			
+			// go through all unscheduled activities
+			while (i >= 0) {
+				SchedulingState newState = scheduleActivity(current, lastHash,
+						i);
+				i = nextRemaining(i + 1);
+				if (newState != null) {
+					return newState;
+				}
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * The activities of a search and their locations, numbered once so that
+	 * states can keep the unscheduled activities as bits and compare locations
+	 * as ints. Shared by all states of a search and never changed
+	 */
+	private static final class ActivityIndex implements Serializable {
+		private static final long serialVersionUID = 2291407215793612286L;
+		private final Activity[] activities;
+		private final long[] durations; // of each activity in milliseconds
+		private final long[] hashes; // longHashCode() of each activity
+		private final int[] locationOf; // index of each activity's location
+		private final Location[] locations;
+		private final int[] travelIds; // id of each location in the graph
+		private final int endLocation; // index of endLocation
+		private final HashMap<Location, Integer> ids;
+		
+		/**
+		 * Constructor that numbers the activities and the locations that can
+		 * be visited
+		 * 
+		 * @param activities
+		 *            The activities to schedule
+		 * @param startLocation
+		 *            Where the user is before the first activity
+		 * @param endLocation
+		 *            Where the user has to be at the end
+		 * @param travelGraph
+		 *            The travel graph to take the ids of the locations from
+		 */
+		private ActivityIndex(Set<Activity> activities,
+				Location startLocation, Location endLocation,
+				TravelGraph travelGraph) {
+			this.activities = new HashSet<Activity>(activities)
+					.toArray(new Activity[activities.size()]);
+			int n = this.activities.length;
+			durations = new long[n];
+			hashes = new long[n];
+			locationOf = new int[n];
+			ids = new HashMap<Location, Integer>();
+			ArrayList<Location> locations = new ArrayList<Location>();
+			for (int i = 0; i < n; i++) {
+				durations[i] = this.activities[i].getDuration().getMillis();
+				hashes[i] = this.activities[i].longHashCode();
+				locationOf[i] = number(this.activities[i].location, locations);
+			}
+			this.endLocation = number(endLocation, locations);
+			number(startLocation, locations);
+			
+			this.locations = locations.toArray(new Location[locations.size()]);
+			travelIds = new int[this.locations.length];
+			for (int i = 0; i < travelIds.length; i++) {
+				travelIds[i] = travelGraph.getId(this.locations[i]);
+			}
+		}
+		
+		/**
+		 * Helper function that gives a location the next index if it doesn't
+		 * have one yet
+		 * 
+		 * @return The index of the location
+		 */
+		private int number(Location location, ArrayList<Location> locations) {
+			Integer id = ids.get(location);
+			if (id == null) {
+				id = locations.size();
+				ids.put(location, id);
+				locations.add(location);
+			}
+			return id;
+		}
+		
+		/**
+		 * Get the index of a location
+		 * 
+		 * @param location
+		 *            One of the locations given to the constructor
+		 * @return The index
+		 */
+		private int getLocation(Location location) {
+			return ids.get(location);
+		}
+	}
+	
 }
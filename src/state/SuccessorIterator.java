@@ -0,0 +1,50 @@
+package state;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator that looks one successor ahead, so that hasNext() knows if there
+ * is another successor without handing it out. Subclasses only need to
+ * generate the next successor
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public abstract class SuccessorIterator implements Iterator<SearchState> {
+	
+	private SearchState next; // null if not generated yet
+	private boolean done;
+	
+	/**
+	 * Generates the next successor
+	 * 
+	 * @return The next successor. Null if there are no more
+	 */
+	protected abstract SearchState generate();
+	
+	@Override
+	public boolean hasNext() {
+		if (next == null && !done) {
+			next = generate();
+			done = next == null;
+		}
+		return next != null;
+	}
+	
+	@Override
+	public SearchState next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		SearchState result = next;
+		next = null;
+		return result;
+	}
+	
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+	
+}
@@ -0,0 +1,87 @@
+package state;
+
+import schedulable.Transportation;
+import activities.Location;
+
+/**
+ * The interface for looking up travel between locations while scheduling.
+ * Locations are numbered 0 to size() - 1 once, so that the lookups in the
+ * inner loop of a search compare ints instead of hashing Locations.
+ * 
+ * Travel always takes the fastest route in the graph. When going through
+ * other locations is faster than the edge between two locations, or there is
+ * no such edge, the route is used instead of the edge. The lower bounds of
+ * the search add up travel times, and they only hold if no travel time is
+ * longer than going through some other location. A route is scheduled as a
+ * single Transportation between its two ends, and the locations in between
+ * are not visited
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public interface TravelGraph {
+	
+	/**
+	 * Travel time between two locations that can't be travelled between
+	 */
+	public static final long UNREACHABLE = Long.MAX_VALUE;
+	
+	/**
+	 * Id of a location that isn't in the graph
+	 */
+	public static final int NONE = -1;
+	
+	/**
+	 * Get the id of a location
+	 * 
+	 * @param location
+	 *            The location
+	 * @return The id. NONE if the location isn't in the graph
+	 */
+	public int getId(Location location);
+	
+	/**
+	 * Get the travel time between two locations along the fastest route,
+	 * which might go through other locations
+	 * 
+	 * @param from
+	 *            The id of the location to travel from
+	 * @param to
+	 *            The id of the location to travel to
+	 * @return The travel time in milliseconds. 0 if the two are the same.
+	 *         UNREACHABLE if there is no way to get there
+	 */
+	public long getTime(int from, int to);
+	
+	/**
+	 * Get the Transportation to schedule to travel between two locations. The
+	 * same object is given every time. It is the edge between the two when
+	 * that is the fastest route. Otherwise it is a Transportation that stands
+	 * for the whole route and takes as long as getTime()
+	 * 
+	 * @param from
+	 *            The id of the location to travel from
+	 * @param to
+	 *            The id of the location to travel to
+	 * @return The Transportation. Null if there is no way to get there or the
+	 *         two are the same
+	 */
+	public Transportation getTransportation(int from, int to);
+	
+	/**
+	 * Get the location with an id
+	 * 
+	 * @param id
+	 *            The id
+	 * @return The location
+	 */
+	public Location getLocation(int id);
+	
+	/**
+	 * Get the number of locations
+	 * 
+	 * @return The number of locations
+	 */
+	public int size();
+	
+}
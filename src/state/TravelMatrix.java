@@ -0,0 +1,137 @@
+package state;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.jgrapht.graph.SimpleWeightedGraph;
+import org.joda.time.Duration;
+
+import schedulable.Transportation;
+import activities.Location;
+
+/**
+ * The fastest travel time between every two locations of a graph, so that
+ * looking up travel while scheduling is indexing an array. Takes n x n longs,
+ * so for large graphs see CompactTravelGraph, which gives the same travel.
+ * Shortest paths are found with Floyd-Warshall, so two locations without an
+ * edge between them can still be travelled between through other locations,
+ * and an edge that is slower than such a route is replaced by the route, see
+ * TravelGraph.
+ * Built once per request and never changed after, so it can be shared by
+ * searches running at the same time
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class TravelMatrix implements TravelGraph, Serializable {
+	private static final long serialVersionUID = 6350217994820593714L;
+	
+	private final HashMap<Location, Integer> ids;
+	private final Location[] locations;
+	private final long[] times; // row by row
+	private final Transportation[] transportations; // row by row
+	
+	/**
+	 * Constructor that finds the shortest paths of a graph. The weight of an
+	 * edge is the duration of its Transportation
+	 * 
+	 * @param graph
+	 *            The graph with the locations and the transportation between
+	 *            them. Not changed
+	 */
+	public TravelMatrix(SimpleWeightedGraph<Location, Transportation> graph) {
+		int n = graph.vertexSet().size();
+		ids = new HashMap<Location, Integer>();
+		locations = graph.vertexSet().toArray(new Location[n]);
+		for (int i = 0; i < n; i++) {
+			ids.put(locations[i], i);
+		}
+		
+		times = new long[n * n];
+		transportations = new Transportation[n * n];
+		Arrays.fill(times, UNREACHABLE);
+		for (int i = 0; i < n; i++) {
+			times[i * n + i] = 0;
+		}
+		for (Transportation edge : graph.edgeSet()) {
+			int from = ids.get(graph.getEdgeSource(edge));
+			int to = ids.get(graph.getEdgeTarget(edge));
+			long time = edge.getDuration().getMillis();
+			if (time < times[from * n + to]) {
+				times[from * n + to] = time;
+				times[to * n + from] = time;
+				transportations[from * n + to] = edge;
+				transportations[to * n + from] = edge;
+			}
+		}
+		
+		// Floyd-Warshall
+		for (int via = 0; via < n; via++) {
+			for (int from = 0; from < n; from++) {
+				long first = times[from * n + via];
+				if (first == UNREACHABLE) {
+					continue;
+				}
+				for (int to = 0; to < n; to++) {
+					long second = times[via * n + to];
+					if (second != UNREACHABLE
+							&& first + second < times[from * n + to]) {
+						times[from * n + to] = first + second;
+						transportations[from * n + to] = null;
+					}
+				}
+			}
+		}
+		
+		// one Transportation per route that isn't a single edge, so that
+		// scheduling the same route twice schedules the same object
+		for (int from = 0; from < n; from++) {
+			for (int to = from + 1; to < n; to++) {
+				long time = times[from * n + to];
+				if (time != UNREACHABLE && transportations[from * n + to] == null) {
+					Transportation route = new Transportation(
+							new Duration(time), locations[from], locations[to]);
+					transportations[from * n + to] = route;
+					transportations[to * n + from] = route;
+				}
+			}
+		}
+	}
+	
+	@Override
+	public int getId(Location location) {
+		Integer id = ids.get(location);
+		return id == null ? NONE : id;
+	}
+	
+	/**
+	 * Get the fastest travel time between two locations, which may go through
+	 * other locations. See TravelGraph.getTime()
+	 */
+	@Override
+	public long getTime(int from, int to) {
+		return times[from * locations.length + to];
+	}
+	
+	/**
+	 * Get the fastest Transportation between two locations. It is the edge of
+	 * the graph if that is the fastest, or a Transportation covering the whole
+	 * route otherwise. See TravelGraph.getTransportation()
+	 */
+	@Override
+	public Transportation getTransportation(int from, int to) {
+		return transportations[from * locations.length + to];
+	}
+	
+	@Override
+	public Location getLocation(int id) {
+		return locations[id];
+	}
+	
+	@Override
+	public int size() {
+		return locations.length;
+	}
+	
+}
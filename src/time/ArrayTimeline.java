@@ -0,0 +1,753 @@
+package time;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.joda.time.DateTime;
+import org.joda.time.Interval;
+
+import schedulable.LegalTime;
+import schedulable.Schedulable;
+import util.Util;
+
+/**
+ * A Timeline that keeps its schedule in sorted arrays of epoch milliseconds
+ * instead of a TreeMap of DateTime. The start and end times of the scheduled
+ * Schedulables are kept in two long arrays, with the Schedulables in a
+ * parallel array. Lookups are binary searches on the arrays, so Joda objects
+ * are only created by the methods that take or return them. This is the
+ * timeline of a TimeBlock
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class ArrayTimeline implements Serializable {
+	private static final long serialVersionUID = 1748263949123370855L;
+	
+	/**
+	 * Returned by the methods that return milliseconds when there is no result
+	 */
+	public static final long NONE = Long.MIN_VALUE;
+	
+	private static final int INITIAL_CAPACITY = 8;
+	
+	protected long intervalStart;
+	protected long intervalEnd; // exclusive, 1ms after the inclusive end
+	protected long[] starts;
+	protected long[] ends;
+	protected Schedulable[] schedulables;
+	protected int size;
+	
+	// max segment tree over the lengths of the free gaps. Gap i is the free
+	// time right before the ith schedulable and gap size is everything after
+	// the last one. Sized by the capacity of the arrays and kept up to date
+	// as things are scheduled and unscheduled. Built lazily after the arrays
+	// grow, or after being copied or deserialized
+	private transient long[] gaps;
+	private transient int leaves;
+	
+	/**
+	 * Constructor that only has an interval. Nothing is scheduled. Note that
+	 * just like Timeline, 1 millisecond is added to the end time to make the
+	 * interval inclusive of the end time
+	 * 
+	 * @param interval
+	 *            The interval during which this timeline is concerned with.
+	 *            Note that timeline automatically adds 1 millisecond at the end
+	 */
+	public ArrayTimeline(Interval interval) {
+		this.intervalStart = interval.getStartMillis();
+		this.intervalEnd = interval.getEndMillis() + 1;
+		starts = new long[INITIAL_CAPACITY];
+		ends = new long[INITIAL_CAPACITY];
+		schedulables = new Schedulable[INITIAL_CAPACITY];
+	}
+	
+	/**
+	 * Constructor that takes everything scheduled on a Timeline. The interval
+	 * of the Timeline is taken as is. The Schedulables are not copied
+	 * 
+	 * @param timeline
+	 *            The Timeline to take the schedule from
+	 */
+	public ArrayTimeline(Timeline timeline) {
+		this.intervalStart = timeline.interval.getStartMillis();
+		this.intervalEnd = timeline.interval.getEndMillis();
+		int capacity = Math.max(INITIAL_CAPACITY, timeline.schedule.size());
+		starts = new long[capacity];
+		ends = new long[capacity];
+		schedulables = new Schedulable[capacity];
+		
+		// the treemap is sorted already
+		for (Map.Entry<DateTime, Schedulable> entry : timeline.schedule
+				.entrySet()) {
+			starts[size] = entry.getKey().getMillis();
+			ends[size] = Util.getEndMillis(starts[size], entry.getValue());
+			schedulables[size] = entry.getValue();
+			size++;
+		}
+	}
+	
+	/**
+	 * Copy constructor. The copy has its own arrays so that scheduling on one
+	 * timeline doesn't affect the other. The Schedulables themselves are not
+	 * copied
+	 * 
+	 * @param other
+	 *            The timeline to copy
+	 */
+	public ArrayTimeline(ArrayTimeline other) {
+		this.intervalStart = other.intervalStart;
+		this.intervalEnd = other.intervalEnd;
+		int capacity = Math.max(INITIAL_CAPACITY, other.size);
+		starts = Arrays.copyOf(other.starts, capacity);
+		ends = Arrays.copyOf(other.ends, capacity);
+		schedulables = Arrays.copyOf(other.schedulables, capacity);
+		size = other.size;
+		if (other.gaps != null && capacity == other.starts.length) {
+			gaps = other.gaps.clone();
+			leaves = other.leaves;
+		}
+	}
+	
+	/**
+	 * Schedule a schedulable after a given earliest start time bound. Assume
+	 * the schedulable can be scheduled any time on this timeline
+	 * 
+	 * @param bound
+	 *            Earliest start time to schedule
+	 * @param schedulable
+	 *            The schedulable to schedule
+	 * @return True if successfully scheduled. False if cannot schedule on the
+	 *         timeline
+	 */
+	public boolean scheduleAfter(DateTime bound, Schedulable schedulable) {
+		return scheduleAfter(bound.getMillis(), null, schedulable);
+	}
+	
+	/**
+	 * Schedule a schedulable after a given earliest start time bound and given
+	 * the legal time to schedule this activity
+	 * 
+	 * @param bound
+	 *            Earliest start time to schedule
+	 * @param legalTimes
+	 *            The timeline of LegalTimes representing the times that it can
+	 *            be scheduled
+	 * @param schedulable
+	 *            Schedulable to schedule
+	 * @return True if successfully scheduled. False if cannot schedule on the
+	 *         timeline
+	 */
+	public boolean scheduleAfter(DateTime bound, ArrayTimeline legalTimes,
+			Schedulable schedulable) {
+		if (legalTimes == null) {
+			throw new NullPointerException("Legal times cannot be null");
+		}
+		return scheduleAfter(bound.getMillis(), legalTimes, schedulable);
+	}
+	
+	/**
+	 * Schedule a schedulable after a given earliest start time bound and given
+	 * the LegalTimeline of this activity. The legal times are read through
+	 * LegalTimeline.toArrayTimeline(), so they are only put in arrays again
+	 * after the LegalTimeline changes
+	 * 
+	 * @param bound
+	 *            Earliest start time to schedule
+	 * @param legalTimes
+	 *            The LegalTimeline representing the times that it can be
+	 *            scheduled
+	 * @param schedulable
+	 *            Schedulable to schedule
+	 * @return True if successfully scheduled. False if cannot schedule on the
+	 *         timeline
+	 */
+	public boolean scheduleAfter(DateTime bound, LegalTimeline legalTimes,
+			Schedulable schedulable) {
+		if (legalTimes == null) {
+			throw new NullPointerException("Legal times cannot be null");
+		}
+		return scheduleAfter(bound.getMillis(), legalTimes.toArrayTimeline(),
+				schedulable);
+	}
+	
+	/**
+	 * Schedule a schedulable after a given earliest start time bound in
+	 * milliseconds
+	 * 
+	 * @param bound
+	 *            Earliest start time to schedule
+	 * @param legalTimes
+	 *            The timeline of LegalTimes representing the times that it can
+	 *            be scheduled. Null if it can be scheduled any time on this
+	 *            timeline
+	 * @param schedulable
+	 *            Schedulable to schedule
+	 * @return True if successfully scheduled. False if cannot schedule on the
+	 *         timeline
+	 */
+	public boolean scheduleAfter(long bound, ArrayTimeline legalTimes,
+			Schedulable schedulable) {
+		long earliestStart = earliestSchedulableLegalAfter(bound, legalTimes,
+				schedulable.getDuration().getMillis());
+		if (earliestStart == NONE) {
+			return false;
+		} else {
+			return schedule(earliestStart, schedulable);
+		}
+	}
+	
+	/**
+	 * Find the earliest time that we can schedule a Schedulable on this
+	 * timeline without conflicts, with consideration of the eraliest start time
+	 * and the legal times for this Schedulable. Gives the same result as
+	 * Timeline.earliestSchedulableLegalAfter()
+	 * 
+	 * @param bound
+	 *            Earliest start time
+	 * @param legalTimes
+	 *            The timeline of LegalTimes representing the times that it can
+	 *            be scheduled
+	 * @param schedulable
+	 *            Schedulable to schedule
+	 * @return Earliest time that we can schedule this Schedulable, represented
+	 *         in DateTime. Null if there is no such time
+	 */
+	public DateTime earliestSchedulableLegalAfter(DateTime bound,
+			ArrayTimeline legalTimes, Schedulable schedulable) {
+		long earliestStart = earliestSchedulableLegalAfter(bound.getMillis(),
+				legalTimes, schedulable.getDuration().getMillis());
+		return earliestStart == NONE ? null : new DateTime(earliestStart);
+	}
+	
+	/**
+	 * Find the earliest time in milliseconds that we can schedule something of
+	 * the given duration on this timeline without conflicts. Instead of
+	 * walking through the schedule, each available legal time asks the gap
+	 * index for the first free gap long enough, so this takes O(log n) per
+	 * legal time
+	 * 
+	 * @param bound
+	 *            Earliest start time
+	 * @param legalTimes
+	 *            The timeline of LegalTimes representing the times that it can
+	 *            be scheduled. Null if it can be scheduled any time on this
+	 *            timeline
+	 * @param duration
+	 *            The duration to schedule
+	 * @throws ClassCastException
+	 *             Throws exception if something on the legal times is not a
+	 *             LegalTime
+	 * @return Earliest start time. NONE if there is no such time
+	 */
+	public long earliestSchedulableLegalAfter(long bound,
+			ArrayTimeline legalTimes, long duration) {
+		
+		// nothing can start where something else starts, so even something of
+		// 0ms needs a gap of 1ms
+		long needed = Math.max(duration, 1);
+		
+		// anything before the one that starts right before the bound ends
+		// before the bound, so skip those
+		int legal = legalTimes == null ? 0 : Math.max(
+				legalTimes.lowerIndex(bound), 0);
+		int numLegal = legalTimes == null ? 1 : legalTimes.size;
+		
+		for (; legal < numLegal; legal++) {
+			long legalStart;
+			long legalEnd;
+			if (legalTimes == null) {
+				// the whole interval is legal
+				legalStart = intervalStart;
+				legalEnd = intervalEnd;
+			} else if (legalTimes.schedulables[legal] instanceof LegalTime) {
+				if (!((LegalTime) legalTimes.schedulables[legal]).available) {
+					continue;
+				}
+				legalStart = legalTimes.starts[legal];
+				legalEnd = legalTimes.ends[legal];
+			} else {
+				throw new ClassCastException(
+						"Cannot type cast schedulable to LegalTime");
+			}
+			
+			long start = Math.max(bound, legalStart);
+			if (start >= intervalEnd) {
+				// out of the interval of this timeline
+				return NONE;
+			} else if (legalEnd - start < duration) {
+				// this legal time is too short
+				continue;
+			}
+			
+			// the gap the pointer is in, or the one right after the
+			// schedulable the pointer is in
+			int gap = lowerIndex(start + 1) + 1;
+			start = Math.max(start, gapStart(gap));
+			if (gap < size && starts[gap] - start < needed) {
+				// not enough time left in this gap, find the next one that is
+				// long enough. The last gap is endless so there always is one
+				gap = firstGap(gap + 1, needed);
+				start = gapStart(gap);
+			}
+			
+			if (start >= intervalEnd) {
+				return NONE;
+			} else if (legalEnd - start >= duration) {
+				return start;
+			}
+		}
+		return NONE;
+	}
+	
+	/**
+	 * Scheule a Schedulable at a specific start time
+	 * 
+	 * @param startTime
+	 *            The exact time to schedule it
+	 * @param schedulable
+	 *            Schedulable to Schedule
+	 * @return True if scheduled successfully. False if otherwise
+	 */
+	public boolean schedule(DateTime startTime, Schedulable schedulable) {
+		return schedule(startTime.getMillis(), schedulable);
+	}
+	
+	/**
+	 * Scheule a Schedulable at a specific start time in milliseconds. Only the
+	 * two neighbours of the start time are checked for overlaps
+	 * 
+	 * @param start
+	 *            The exact time to schedule it
+	 * @param schedulable
+	 *            Schedulable to Schedule
+	 * @return True if scheduled successfully. False if otherwise
+	 */
+	public boolean schedule(long start, Schedulable schedulable) {
+		long end = Util.getEndMillis(start, schedulable);
+		
+		// check if within the interval of this timeline
+		if (start < intervalStart || start >= intervalEnd || end > intervalEnd) {
+			return false;
+		}
+		
+		int index = Arrays.binarySearch(starts, 0, size, start);
+		if (index >= 0) {
+			// something else starts at the same time
+			return false;
+		}
+		index = -(index + 1);
+		
+		// overlaps with the one before or the one after
+		if ((index > 0 && overlaps(index - 1, start, end))
+				|| (index < size && overlaps(index, start, end))) {
+			return false;
+		}
+		
+		insert(index, start, end, schedulable);
+		return true;
+	}
+	
+	/**
+	 * Puts a Schedulable at a start time without checking the interval or
+	 * overlaps. This is for the TB-starting and TB-ending activities of
+	 * TimeBlock, which are scheduled right outside of its interval
+	 * 
+	 * @param start
+	 *            The exact time to put it in milliseconds
+	 * @param schedulable
+	 *            Schedulable to put
+	 * @return True if put. False if something already starts at that time
+	 */
+	boolean put(long start, Schedulable schedulable) {
+		int index = Arrays.binarySearch(starts, 0, size, start);
+		if (index >= 0) {
+			return false;
+		}
+		insert(-(index + 1), start, Util.getEndMillis(start, schedulable),
+				schedulable);
+		return true;
+	}
+	
+	/**
+	 * Creates a timeline with the same interval that only contains the last
+	 * Schedulable of this timeline. Scheduling after lastEndTime() never looks
+	 * further back than the last Schedulable, so the tail is enough to keep
+	 * scheduling. What gets scheduled on the tail can be put back with merge()
+	 * 
+	 * @return The tail of this timeline
+	 */
+	public ArrayTimeline tail() {
+		ArrayTimeline tail = new ArrayTimeline(this, INITIAL_CAPACITY);
+		if (size > 0) {
+			tail.starts[0] = starts[size - 1];
+			tail.ends[0] = ends[size - 1];
+			tail.schedulables[0] = schedulables[size - 1];
+			tail.size = 1;
+		}
+		return tail;
+	}
+	
+	/**
+	 * Helper constructor for an empty timeline with the same interval as
+	 * another one
+	 */
+	private ArrayTimeline(ArrayTimeline other, int capacity) {
+		this.intervalStart = other.intervalStart;
+		this.intervalEnd = other.intervalEnd;
+		starts = new long[capacity];
+		ends = new long[capacity];
+		schedulables = new Schedulable[capacity];
+	}
+	
+	/**
+	 * Puts everything scheduled on another timeline onto this timeline without
+	 * checking for overlaps. This is meant for putting back what was scheduled
+	 * on a tail() of this timeline. Entries this timeline already has are
+	 * skipped
+	 * 
+	 * @param other
+	 *            The timeline to merge in
+	 * @return True if merged successfully. False if some start time is already
+	 *         taken by a different Schedulable
+	 */
+	public boolean merge(ArrayTimeline other) {
+		for (int i = 0; i < other.size; i++) {
+			int index = Arrays.binarySearch(starts, 0, size, other.starts[i]);
+			if (index < 0) {
+				insert(-(index + 1), other.starts[i], other.ends[i],
+						other.schedulables[i]);
+			} else if (!schedulables[index].equals(other.schedulables[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Takes some schedulable off the timeline
+	 * 
+	 * @param start
+	 *            the time it is scheduled
+	 * @return the previous value being associated with this key or null if
+	 *         nothing found
+	 */
+	public Schedulable unschedule(DateTime start) {
+		return unschedule(start.getMillis());
+	}
+	
+	/**
+	 * Takes some schedulable off the timeline
+	 * 
+	 * @param start
+	 *            the time it is scheduled in milliseconds
+	 * @return the previous value being associated with this key or null if
+	 *         nothing found
+	 */
+	public Schedulable unschedule(long start) {
+		int index = Arrays.binarySearch(starts, 0, size, start);
+		if (index < 0) {
+			return null;
+		}
+		Schedulable removed = schedulables[index];
+		System.arraycopy(starts, index + 1, starts, index, size - index - 1);
+		System.arraycopy(ends, index + 1, ends, index, size - index - 1);
+		System.arraycopy(schedulables, index + 1, schedulables, index, size
+				- index - 1);
+		size--;
+		schedulables[size] = null;
+		updateGaps(index, size + 1);
+		return removed;
+	}
+	
+	/**
+	 * Checks if a Schedulable is scheduled to start at this time
+	 * 
+	 * @param start
+	 *            start time
+	 * @return True if a Schedulable is scheduled to start at this time. Flase
+	 *         if otherwise
+	 */
+	public boolean hasScheduleStart(DateTime start) {
+		return hasScheduleStart(start.getMillis());
+	}
+	
+	/**
+	 * Checks if a Schedulable is scheduled to start at this time
+	 * 
+	 * @param start
+	 *            start time in milliseconds
+	 * @return True if a Schedulable is scheduled to start at this time. Flase
+	 *         if otherwise
+	 */
+	public boolean hasScheduleStart(long start) {
+		return Arrays.binarySearch(starts, 0, size, start) >= 0;
+	}
+	
+	/**
+	 * End time of the last schedulable on the timeline. If nothing scheduled,
+	 * return the start time
+	 * 
+	 * @return End time as DateTime.
+	 */
+	public DateTime lastEndTime() {
+		return new DateTime(lastEndMillis());
+	}
+	
+	/**
+	 * End time of the last schedulable on the timeline in milliseconds. If
+	 * nothing scheduled, return the start time
+	 * 
+	 * @return End time in milliseconds
+	 */
+	public long lastEndMillis() {
+		return size == 0 ? intervalStart : ends[size - 1];
+	}
+	
+	/**
+	 * The last Schedulable on the timeline and its start time
+	 * 
+	 * @return The entry. Null if nothing is scheduled
+	 */
+	public Map.Entry<DateTime, Schedulable> lastEntry() {
+		if (size == 0) {
+			return null;
+		}
+		return new AbstractMap.SimpleImmutableEntry<DateTime, Schedulable>(
+				new DateTime(starts[size - 1]), schedulables[size - 1]);
+	}
+	
+	/**
+	 * Get number of scheduled activities on the timeline
+	 * 
+	 * @return number of scheduled activities
+	 */
+	public int getNumScheduled() {
+		return size;
+	}
+	
+	/**
+	 * Checks if the schedule is empty
+	 * 
+	 * @return True if nothing is scheduled on this timeline. False if otherwise
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public Interval getInterval() {
+		return new Interval(intervalStart, intervalEnd);
+	}
+	
+	/**
+	 * Getter of the schedule as a treemap. The treemap is newly built so
+	 * changing it doesn't affect the timeline. The Schedulables are not copied
+	 * 
+	 * @return The schedule represented by a treemap
+	 */
+	public TreeMap<DateTime, Schedulable> getSchedule() {
+		TreeMap<DateTime, Schedulable> schedule = new TreeMap<DateTime, Schedulable>();
+		for (int i = 0; i < size; i++) {
+			schedule.put(new DateTime(starts[i]), schedulables[i]);
+		}
+		return schedule;
+	}
+	
+	/**
+	 * Builds a Timeline with the same interval and schedule
+	 * 
+	 * @return The Timeline
+	 */
+	public Timeline toTimeline() {
+		Timeline timeline = new Timeline();
+		timeline.interval = getInterval();
+		timeline.schedule = getSchedule();
+		return timeline;
+	}
+	
+	/**
+	 * Index of the last Schedulable that starts before the given time
+	 * 
+	 * @param time
+	 *            The time in milliseconds
+	 * @return The index. -1 if nothing starts before the time
+	 */
+	protected int lowerIndex(long time) {
+		int index = Arrays.binarySearch(starts, 0, size, time);
+		return index >= 0 ? index - 1 : -(index + 1) - 1;
+	}
+	
+	/**
+	 * Helper function that gives the earliest time something can start in the
+	 * given gap. Right after a 0ms schedulable is 1ms after its start, since
+	 * nothing can start at the same time
+	 */
+	private long gapStart(int gap) {
+		if (gap == 0) {
+			return Long.MIN_VALUE;
+		}
+		return ends[gap - 1] == starts[gap - 1] ? starts[gap - 1] + 1
+				: ends[gap - 1];
+	}
+	
+	/**
+	 * Helper function that gives the length of the given gap. The gaps before
+	 * the first and after the last schedulable are endless
+	 */
+	private long gapLength(int gap) {
+		if (gap == 0 || gap == size) {
+			return Long.MAX_VALUE;
+		}
+		return starts[gap] - gapStart(gap);
+	}
+	
+	/**
+	 * Helper function that finds the first gap at or after the given one that
+	 * is at least the given length, building the gap index if needed
+	 */
+	private int firstGap(int from, long needed) {
+		if (gaps == null) {
+			// one more leaf than the capacity for the gap after the last one
+			leaves = Integer.highestOneBit(starts.length) << 1;
+			gaps = new long[leaves * 2];
+			Arrays.fill(gaps, Long.MIN_VALUE);
+			for (int i = 0; i <= size; i++) {
+				gaps[leaves + i] = gapLength(i);
+			}
+			for (int i = leaves - 1; i > 0; i--) {
+				gaps[i] = Math.max(gaps[i * 2], gaps[i * 2 + 1]);
+			}
+		}
+		return firstGap(1, 0, leaves, from, needed);
+	}
+	
+	/**
+	 * Helper function that updates the gap index after the schedule changed at
+	 * the index. The gaps from there on have shifted, so the leaves from the
+	 * index to the given last one are set again, and then only the nodes above
+	 * them. The leaves past the last gap are left empty
+	 */
+	private void updateGaps(int from, int to) {
+		if (gaps == null) {
+			return;
+		}
+		for (int i = from; i <= to; i++) {
+			gaps[leaves + i] = i <= size ? gapLength(i) : Long.MIN_VALUE;
+		}
+		int low = (leaves + from) / 2;
+		int high = (leaves + to) / 2;
+		for (; low > 0; low /= 2, high /= 2) {
+			for (int node = low; node <= high; node++) {
+				gaps[node] = Math.max(gaps[node * 2], gaps[node * 2 + 1]);
+			}
+		}
+	}
+	
+	/**
+	 * Helper function that searches the subtree of the node covering gaps low
+	 * (inclusive) to high (exclusive). -1 if none found in the subtree
+	 */
+	private int firstGap(int node, int low, int high, int from, long needed) {
+		if (high <= from || gaps[node] < needed) {
+			return -1;
+		} else if (high - low == 1) {
+			return low;
+		}
+		int mid = (low + high) >>> 1;
+		int found = firstGap(node * 2, low, mid, from, needed);
+		return found >= 0 ? found : firstGap(node * 2 + 1, mid, high, from,
+				needed);
+	}
+	
+	/**
+	 * Helper function that checks if the Schedulable at the index overlaps
+	 * with the given interval, the same way Interval.overlaps() does
+	 */
+	private boolean overlaps(int index, long start, long end) {
+		return starts[index] < end && start < ends[index];
+	}
+	
+	/**
+	 * Helper function that inserts at the index, growing the arrays if needed
+	 */
+	private void insert(int index, long start, long end,
+			Schedulable schedulable) {
+		if (size == starts.length) {
+			int capacity = starts.length * 2;
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			schedulables = Arrays.copyOf(schedulables, capacity);
+			
+			// the gap index is sized by the capacity
+			gaps = null;
+		}
+		System.arraycopy(starts, index, starts, index + 1, size - index);
+		System.arraycopy(ends, index, ends, index + 1, size - index);
+		System.arraycopy(schedulables, index, schedulables, index + 1, size
+				- index);
+		starts[index] = start;
+		ends[index] = end;
+		schedulables[index] = schedulable;
+		size++;
+		updateGaps(index, size);
+	}
+	
+	/**
+	 * Overrides the object equals() method. Checks all fields to see if
+	 * equals(). Consistent with hashCode()
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof ArrayTimeline) {
+			ArrayTimeline other = (ArrayTimeline) obj;
+			if (intervalStart != other.intervalStart
+					|| intervalEnd != other.intervalEnd || size != other.size) {
+				return false;
+			}
+			for (int i = 0; i < size; i++) {
+				if (starts[i] != other.starts[i]
+						|| !schedulables[i].equals(other.schedulables[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Overrides the object hashCode() method. Creates a hash using all fields
+	 * in the class. Consistent with equals(), and the same as the hash of a
+	 * Timeline with the same interval and schedule
+	 */
+	@Override
+	public int hashCode() {
+		// the hash of the treemap is the sum of the hashes of its entries
+		int schedule = 0;
+		for (int i = 0; i < size; i++) {
+			schedule += new DateTime(starts[i]).hashCode()
+					^ schedulables[i].hashCode();
+		}
+		return new HashCodeBuilder().append(getInterval()).append(schedule)
+				.toHashCode();
+	}
+	
+	/**
+	 * 64-bit hash consistent with equals(). The same as the hash of a Timeline
+	 * with the same interval and schedule, see Timeline.longHashCode()
+	 * 
+	 * @return The hash
+	 */
+	public long longHashCode() {
+		long hash = Util.mix(intervalStart) ^ Util.mix(~intervalEnd);
+		for (int i = 0; i < size; i++) {
+			hash ^= Util.longHashCode(starts[i], schedulables[i]);
+		}
+		return hash;
+	}
+}
@@ -2,6 +2,7 @@ package time;
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.TreeMap;
 
 import org.joda.time.DateTime;
@@ -22,6 +23,7 @@ import util.Util;
  */
 public class LegalTimeline extends Timeline {
 	private static final long serialVersionUID = 6861305297042866238L;
+	private transient volatile ArrayView arrayView; // see toArrayTimeline()
 	
 	/**
 	 * Wrapper around the parent constructor. The treemap will be initiated but
@@ -172,6 +174,7 @@ public class LegalTimeline extends Timeline {
 				// entire Schedulable is before the bound, set availability to
 				// false
 				((LegalTime) scheduled.getValue()).available = false;
+				modCount++;
 				
 			} else {
 				// the bound occurs in the middle of this Schedulable
@@ -194,6 +197,91 @@ public class LegalTimeline extends Timeline {
 		return true;
 	}
 	
+	/**
+	 * Read-only view of what is available from the given time on. Gives the
+	 * available LegalTimes that end at or after the time, with the one the time
+	 * occurs in cut to start at the time. Unlike setEarliestAvailable(),
+	 * nothing on this LegalTimeline is changed, so it can be shared
+	 * 
+	 * @param bound
+	 *            The earliest available time
+	 * @throws ClassCastException
+	 *             The iterator throws exception if it comes across some
+	 *             Schedulable that is not a LegalTime
+	 * @return An iterator of the available intervals in order
+	 */
+	public Iterator<Interval> availableFrom(final DateTime bound) {
+		// anything before the one that starts right before the bound ends
+		// before the bound
+		DateTime from = schedule.lowerKey(bound);
+		final Iterator<Map.Entry<DateTime, Schedulable>> itr = (from == null ? schedule
+				: schedule.tailMap(from, true)).entrySet().iterator();
+		
+		return new Iterator<Interval>() {
+			private Interval next;
+			
+			@Override
+			public boolean hasNext() {
+				while (next == null && itr.hasNext()) {
+					Map.Entry<DateTime, Schedulable> scheduled = itr.next();
+					if (!(scheduled.getValue() instanceof LegalTime)) {
+						throw new ClassCastException(
+								"Cannot type cast schedulable to LegalTime");
+					}
+					
+					DateTime end = Util.getEndTime(scheduled);
+					if (((LegalTime) scheduled.getValue()).available
+							&& !end.isBefore(bound)) {
+						next = new Interval(later(scheduled.getKey(), bound),
+								end);
+					}
+				}
+				return next != null;
+			}
+			
+			@Override
+			public Interval next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Interval available = next;
+				next = null;
+				return available;
+			}
+			
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException(
+						"LegalTimeline.availableFrom() is read-only");
+			}
+		};
+	}
+	
+	/**
+	 * Checks if there is enough legal time available from the given time on to
+	 * schedule something, without changing this LegalTimeline. See
+	 * availableFrom()
+	 * 
+	 * @param bound
+	 *            The earliest available time
+	 * @param duration
+	 *            The duration of whatever you are checking availability for
+	 * @throws ClassCastExcpetion
+	 *             throws exception if some Schedulable is not an instance of
+	 *             LegalTime
+	 * @return True if there exists some available LegalTime segment that is
+	 *         long enough after the time to cover the duration given
+	 */
+	public boolean enoughLegalTimes(DateTime bound, Duration duration) {
+		Iterator<Interval> itr = availableFrom(bound);
+		while (itr.hasNext()) {
+			if (!itr.next().toDuration().isShorterThan(duration)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * Checks if there is enough legal time available to schedule something.
 	 * This is usually used to do forward checking
@@ -226,6 +314,25 @@ public class LegalTimeline extends Timeline {
 		return false;
 	}
 	
+	/**
+	 * The legal times put in an ArrayTimeline, so that scheduling against them
+	 * is a few binary searches. Built again only after this LegalTimeline
+	 * changes, see getModCount(). Activities are shared by searches running at
+	 * the same time, so the ArrayTimeline is never changed once built and is
+	 * handed over through a volatile field. The LegalTimes themselves are
+	 * shared with this LegalTimeline
+	 * 
+	 * @return The legal times as an ArrayTimeline
+	 */
+	ArrayTimeline toArrayTimeline() {
+		ArrayView view = arrayView;
+		if (view == null || view.modCount != modCount) {
+			view = new ArrayView(modCount, new ArrayTimeline(this));
+			arrayView = view;
+		}
+		return view.timeline;
+	}
+	
 	/**
 	 * Find the intersection of 2 legalTimeline's
 	 * 
@@ -316,4 +423,17 @@ public class LegalTimeline extends Timeline {
 			
 		}
 	}
+	
+	/**
+	 * An ArrayTimeline of the legal times and the modCount it was built at
+	 */
+	private static final class ArrayView {
+		private final int modCount;
+		private final ArrayTimeline timeline;
+		
+		private ArrayView(int modCount, ArrayTimeline timeline) {
+			this.modCount = modCount;
+			this.timeline = timeline;
+		}
+	}
 }
@@ -9,11 +9,13 @@ import org.joda.time.Interval;
 
 import schedulable.Activity;
 import schedulable.Schedulable;
+import util.Util;
 import activities.Location;
 
 /**
  * Represents a block of time that the scheduler will work with. It has a
- * timeline where the activities and transportation will get scheduled on.
+ * timeline where the activities and transportation will get scheduled on,
+ * kept as an ArrayTimeline so that scheduling works on milliseconds.
  * TimeBlock also contains information about the start and end location of this
  * time blockIt is paired with an AST so that the scheduler can schedule the
  * activities in the AST in the TB.
@@ -26,7 +28,7 @@ public class TimeBlock implements Serializable {
 	private int index;
 	private Location startLocation;
 	private Location endLocation;
-	private Timeline scheduledActivities;
+	private ArrayTimeline scheduledActivities;
 	
 	/**
 	 * Constructor with all of the fields except the timeline, which will be
@@ -47,10 +49,60 @@ public class TimeBlock implements Serializable {
 		this.index = index;
 		this.startLocation = startLocation;
 		this.endLocation = endLocation;
-		this.scheduledActivities = new Timeline(new Interval(timespan));
+		this.scheduledActivities = new ArrayTimeline(timespan);
 		
 	}
 	
+	/**
+	 * Copy constructor. The copy has its own timeline so that scheduling on one
+	 * TB doesn't affect the other
+	 * 
+	 * @param other
+	 *            The TB to copy
+	 */
+	public TimeBlock(TimeBlock other) {
+		this(other, new ArrayTimeline(other.scheduledActivities));
+	}
+	
+	/**
+	 * Constructor that takes the index and locations of another TB but uses the
+	 * given timeline
+	 * 
+	 * @param other
+	 *            The TB to take the index and locations from
+	 * @param scheduledActivities
+	 *            The timeline of the new TB
+	 */
+	private TimeBlock(TimeBlock other, ArrayTimeline scheduledActivities) {
+		this.index = other.index;
+		this.startLocation = other.startLocation;
+		this.endLocation = other.endLocation;
+		this.scheduledActivities = scheduledActivities;
+	}
+	
+	/**
+	 * Creates a TB with the same index, locations and interval whose timeline
+	 * only contains the last scheduled Schedulable of this TB. See
+	 * ArrayTimeline.tail()
+	 * 
+	 * @return The tail of this TB
+	 */
+	public TimeBlock tail() {
+		return new TimeBlock(this, scheduledActivities.tail());
+	}
+	
+	/**
+	 * Puts everything scheduled on a tail of this TB back onto this TB. See
+	 * ArrayTimeline.merge()
+	 * 
+	 * @param tail
+	 *            The tail to merge in
+	 * @return True if merged successfully. False if otherwise
+	 */
+	public boolean merge(TimeBlock tail) {
+		return scheduledActivities.merge(tail.scheduledActivities);
+	}
+	
 	/**
 	 * Wrapper around the timeline schedule method
 	 * 
@@ -67,8 +119,8 @@ public class TimeBlock implements Serializable {
 	/**
 	 * Wrapper around the timeline scheduleAfter. If the Schedulable is an
 	 * Activity, it will extract the legal time and pass it in. If it is
-	 * something else, this method will assume it can schedule at any time and
-	 * creates a timeline that covers the entire duration of this TB
+	 * something else, this method will assume it can schedule at any time
+	 * during this TB
 	 * 
 	 * @param startTime
 	 *            The earliest start time bound
@@ -119,14 +171,8 @@ public class TimeBlock implements Serializable {
 			return false;
 		}
 		
-		DateTime beforeInterval = scheduledActivities.getInterval().getStart()
-				.minus(1);
-		if (!scheduledActivities.hasScheduleStart(beforeInterval)
-				&& scheduledActivities.schedule.put(beforeInterval, activity) == null) {
-			return true;
-		} else {
-			return false;
-		}
+		return scheduledActivities.put(scheduledActivities.intervalStart - 1,
+				activity);
 	}
 	
 	/**
@@ -154,15 +200,11 @@ public class TimeBlock implements Serializable {
 		if (activity.getDuration().getMillis() > 1) {
 			return false;
 		}
-		DateTime last = scheduledActivities.lastEndTime();
+		long last = scheduledActivities.lastEndMillis();
 		if (scheduledActivities.hasScheduleStart(last)) {
-			last = last.plus(1);
-		}
-		if (scheduledActivities.schedule.put(last, activity) == null) {
-			return true;
-		} else {
-			return false;
+			last++;
 		}
+		return scheduledActivities.put(last, activity);
 	}
 	
 	/**
@@ -194,10 +236,22 @@ public class TimeBlock implements Serializable {
 				.append(endLocation).append(scheduledActivities).toHashCode();
 	}
 	
+	/**
+	 * 64-bit hash consistent with equals(). The timeline part is the XOR of
+	 * everything scheduled, see ArrayTimeline.longHashCode()
+	 * 
+	 * @return The hash
+	 */
+	public long longHashCode() {
+		return Util.mix(new HashCodeBuilder().append(index)
+				.append(startLocation).append(endLocation).toHashCode())
+				^ scheduledActivities.longHashCode();
+	}
+	
 	/************************* Getters *****************************/
 	
 	public Interval getInterval() {
-		return scheduledActivities.interval;
+		return scheduledActivities.getInterval();
 	}
 	
 	public DateTime lastEndTime() {
@@ -205,7 +259,7 @@ public class TimeBlock implements Serializable {
 	}
 	
 	public Map.Entry<DateTime, Schedulable> getLastScheduled() {
-		return scheduledActivities.schedule.lastEntry();
+		return scheduledActivities.lastEntry();
 	}
 	
 	public int getIndex() {
@@ -220,7 +274,7 @@ public class TimeBlock implements Serializable {
 		return endLocation;
 	}
 	
-	public Timeline getScheduledActivities() {
+	public ArrayTimeline getScheduledActivities() {
 		return scheduledActivities;
 	}
 	
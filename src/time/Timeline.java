@@ -28,6 +28,7 @@ public class Timeline implements Serializable {
 	private static final long serialVersionUID = -7686653954597194859L;
 	protected Interval interval;
 	protected TreeMap<DateTime, Schedulable> schedule;
+	protected int modCount; // see getModCount()
 	
 	/**
 	 * For testing
@@ -166,7 +167,9 @@ public class Timeline implements Serializable {
 	/**
 	 * Find the earliest time that we can schedule a Schedulable on this
 	 * timeline without conflicts, with consideration of the eraliest start time
-	 * and the legal times for this Schedulable
+	 * and the legal times for this Schedulable. The legal times are only read
+	 * through LegalTimeline.availableFrom(), so they never need to be updated
+	 * with setEarliestAvailable() beforehand
 	 * 
 	 * @param bound
 	 *            Earliest start time
@@ -190,12 +193,12 @@ public class Timeline implements Serializable {
 		// forward to beginning of the first legal time if appropriate
 		start = later(bound, legalTimes.schedule.firstKey());
 		
-		Iterator<Map.Entry<DateTime, Schedulable>> legalItr = legalTimes.schedule
-				.entrySet().iterator();
+		// only look at what is available from the pointer on
+		Iterator<Interval> legalItr = legalTimes.availableFrom(start);
 		Iterator<Map.Entry<DateTime, Schedulable>> scheduledItr = schedule
 				.entrySet().iterator();
 		
-		Map.Entry<DateTime, Schedulable> legal = null;
+		Interval legal = null;
 		Map.Entry<DateTime, Schedulable> scheduled = null;
 		
 		// work through the legal timeline and current scheduled timeline until
@@ -206,26 +209,17 @@ public class Timeline implements Serializable {
 				return null;
 			}
 			
-			// something on the legal timeline isn't a LegalTime
-			if (legal != null && !(legal.getValue() instanceof LegalTime)) {
-				throw new ClassCastException(
-						"Cannot type cast schedulable to LegalTime");
-			}
-			
 			// this legalTime block is irrelevent to test for available time
-			if (legal == null || !((LegalTime) legal.getValue()).available
-					|| Util.getEndTime(legal).isBefore(start) // whole segment
+			if (legal == null || legal.getEnd().isBefore(start) // whole segment
 																// is before our
 																// pointer
-					|| new Duration(start, Util.getEndTime(legal)) // not long
-																	// enough
-																	// available
-																	// time to
-																	// schedule
+					|| new Duration(start, legal.getEnd()) // not long enough
+															// available time to
+															// schedule
 							.isShorterThan(schedulable.getDuration())) {
 				if (legalItr.hasNext()) {
 					legal = legalItr.next();
-					start = later(start, legal.getKey());
+					start = later(start, legal.getStart());
 					continue;
 				} else {
 					return null;
@@ -301,43 +295,49 @@ public class Timeline implements Serializable {
 		// check if within the interval of this timeline
 		if (interval.contains(toSchedule)) {
 			
-			Map.Entry<DateTime, Schedulable> lastEntry = schedule.lastEntry();
+			// everything on the timeline is disjoint, so only the ones right
+			// before and right after can overlap with toSchedule
+			Map.Entry<DateTime, Schedulable> before = schedule
+					.floorEntry(startTime);
+			if (before != null
+					&& (before.getKey().isEqual(startTime) || overlaps(before,
+							toSchedule))) {
+				return false;
+			}
 			
-			// check if nothing scheduled or after last scheduled event
-			if (lastEntry == null
-					|| (!startTime.isBefore(Util.getEndTime(lastEntry)) && startTime
-							.isAfter(lastEntry.getKey()))) {
-				schedule.put(startTime, schedulable);
-				return true;
-				
-			} else { // somewhere in between already scheduled
-				Iterator<Map.Entry<DateTime, Schedulable>> itr = schedule
-						.entrySet().iterator();
-				while (itr.hasNext()) {
-					Map.Entry<DateTime, Schedulable> entry = itr.next();
-					Interval scheduled = new Interval(entry.getKey(),
-							Util.getEndTime(entry));
-					
-					// start time or any other part of an existing schedulable
-					// overlaps with toSchedule
-					if (scheduled.getStart().equals(toSchedule.getStart())
-							|| scheduled.overlaps(toSchedule)) {
-						return false;
-					}
-					
-					// occurs before this scheduled event
-					if (!toSchedule.getEnd().isAfter(scheduled.getStart())) {
-						schedule.put(startTime, schedulable);
-						return true;
-					}
-					
-				}
+			Map.Entry<DateTime, Schedulable> after = schedule
+					.higherEntry(startTime);
+			if (after != null && overlaps(after, toSchedule)) {
+				return false;
 			}
+			
+			schedule.put(startTime, schedulable);
+			modCount++;
+			return true;
 		}
 		
 		return false;
 	}
 	
+	/**
+	 * Helper function that checks if a scheduled entry overlaps with an
+	 * interval, the same way Interval.overlaps() does but without creating an
+	 * Interval for the entry
+	 * 
+	 * @param entry
+	 *            The scheduled entry
+	 * @param interval
+	 *            The interval to check against
+	 * @return True if they overlap. False if otherwise
+	 */
+	private boolean overlaps(Map.Entry<DateTime, Schedulable> entry,
+			Interval interval) {
+		long start = entry.getKey().getMillis();
+		long end = Util.getEndMillis(start, entry.getValue());
+		return start < interval.getEndMillis()
+				&& interval.getStartMillis() < end;
+	}
+	
 	/**
 	 * Takes some schedulable off the timeline
 	 * 
@@ -347,7 +347,11 @@ public class Timeline implements Serializable {
 	 *         nothing found
 	 */
 	public Schedulable unschedule(DateTime start) {
-		return schedule.remove(start);
+		Schedulable removed = schedule.remove(start);
+		if (removed != null) {
+			modCount++;
+		}
+		return removed;
 	}
 	
 	/**
@@ -433,6 +437,16 @@ public class Timeline implements Serializable {
 		return interval;
 	}
 	
+	/**
+	 * Getter of the number of times this timeline has been changed, so that
+	 * something computed from it can tell if it is out of date
+	 * 
+	 * @return The number of changes
+	 */
+	public int getModCount() {
+		return modCount;
+	}
+	
 	/**
 	 * Getter of the treemap. Returns a deep copy of the treemap to prevent
 	 * people from modifying it and schedule something illegally
@@ -470,4 +484,19 @@ public class Timeline implements Serializable {
 		return new HashCodeBuilder().append(interval).append(schedule)
 				.toHashCode();
 	}
+	
+	/**
+	 * 64-bit hash consistent with equals(). Everything scheduled is hashed on
+	 * its own and XORed together, see Util.longHashCode()
+	 * 
+	 * @return The hash
+	 */
+	public long longHashCode() {
+		long hash = Util.mix(interval.getStartMillis())
+				^ Util.mix(~interval.getEndMillis());
+		for (Map.Entry<DateTime, Schedulable> entry : schedule.entrySet()) {
+			hash ^= Util.longHashCode(entry.getKey(), entry.getValue());
+		}
+		return hash;
+	}
 }
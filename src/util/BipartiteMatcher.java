@@ -0,0 +1,234 @@
+package util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Matches the left vertices of a bipartite graph to right vertices, each right
+ * vertex to at most one left vertex. Used for matching ASTs (left) with TBs
+ * (right). A maximum matching is found with Hopcroft-Karp. Whether an edge is
+ * in some matching that matches every left vertex is then checked with a
+ * single augmenting path search from that matching, so trying each edge of a
+ * left vertex doesn't take a whole matching each
+ * 
+ * @author chiao-yutuan
+ * 
+ */
+public class BipartiteMatcher {
+	
+	/**
+	 * In a matching, the right vertex of a left vertex that isn't matched
+	 */
+	public static final int UNMATCHED = -1;
+	
+	private static final int INFINITY = Integer.MAX_VALUE;
+	
+	private final int[][] adjacency;
+	private final int numRight;
+	private int[] saturating; // null until canMatch() is called
+	private int[] saturatingRight; // left vertex of each right vertex
+	private boolean saturated; // every left vertex is matched in saturating
+	
+	/**
+	 * Constructor with the edges of the graph
+	 * 
+	 * @param adjacency
+	 *            For each left vertex, the right vertices it can be matched
+	 *            with. Not copied, so it must not be changed afterwards
+	 * @param numRight
+	 *            The number of right vertices. They are numbered 0 to numRight
+	 *            - 1
+	 */
+	public BipartiteMatcher(int[][] adjacency, int numRight) {
+		this.adjacency = adjacency;
+		this.numRight = numRight;
+	}
+	
+	/**
+	 * Finds a maximum matching with Hopcroft-Karp in O(E sqrt(V))
+	 * 
+	 * @return The right vertex each left vertex is matched with. UNMATCHED for
+	 *         the ones that aren't
+	 */
+	public int[] maximumMatching() {
+		int[] matchLeft = new int[adjacency.length];
+		int[] matchRight = new int[numRight];
+		Arrays.fill(matchLeft, UNMATCHED);
+		Arrays.fill(matchRight, UNMATCHED);
+		int[] dist = new int[adjacency.length];
+		
+		while (layer(matchLeft, matchRight, dist)) {
+			for (int left = 0; left < adjacency.length; left++) {
+				if (matchLeft[left] == UNMATCHED) {
+					augmentAlongLayers(left, matchLeft, matchRight, dist);
+				}
+			}
+		}
+		return matchLeft;
+	}
+	
+	/**
+	 * Checks if every left vertex can be matched
+	 * 
+	 * @return True if there is a matching that matches every left vertex.
+	 *         False if otherwise
+	 */
+	public boolean hasSaturatingMatching() {
+		for (int right : maximumMatching()) {
+			if (right == UNMATCHED) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Checks if some matching that matches every left vertex has the edge. The
+	 * first call finds one such matching with Hopcroft-Karp. Each call after
+	 * that puts the edge into it and looks for one augmenting path from the
+	 * left vertex that loses its right vertex, in O(E)
+	 * 
+	 * @param left
+	 *            The left vertex of the edge
+	 * @param right
+	 *            The right vertex of the edge
+	 * @return True if there is such a matching. False if otherwise, or if
+	 *         there is no such edge
+	 */
+	public boolean canMatch(int left, int right) {
+		if (saturating == null) {
+			saturating = maximumMatching();
+			saturatingRight = new int[numRight];
+			Arrays.fill(saturatingRight, UNMATCHED);
+			saturated = true;
+			for (int i = 0; i < saturating.length; i++) {
+				if (saturating[i] == UNMATCHED) {
+					saturated = false;
+				} else {
+					saturatingRight[saturating[i]] = i;
+				}
+			}
+		}
+		if (!saturated || !hasEdge(left, right)) {
+			return false;
+		}
+		if (saturating[left] == right) {
+			return true;
+		}
+		
+		// match the edge, which frees the old right vertex of the left vertex
+		// and leaves the old left vertex of the right vertex to match again
+		int[] matchLeft = saturating.clone();
+		int[] matchRight = saturatingRight.clone();
+		int displaced = matchRight[right];
+		matchRight[matchLeft[left]] = UNMATCHED;
+		matchLeft[left] = right;
+		matchRight[right] = left;
+		if (displaced == UNMATCHED) {
+			return true;
+		}
+		matchLeft[displaced] = UNMATCHED;
+		
+		BitSet fixed = new BitSet(adjacency.length);
+		fixed.set(left);
+		return augment(displaced, matchLeft, matchRight, fixed,
+				new boolean[numRight]);
+	}
+	
+	/**
+	 * Helper function of Hopcroft-Karp that finds the distance of each left
+	 * vertex from the unmatched left vertices along alternating paths
+	 * 
+	 * @return True if there is some augmenting path. False if otherwise
+	 */
+	private boolean layer(int[] matchLeft, int[] matchRight, int[] dist) {
+		int[] queue = new int[adjacency.length];
+		int head = 0;
+		int tail = 0;
+		for (int left = 0; left < adjacency.length; left++) {
+			if (matchLeft[left] == UNMATCHED) {
+				dist[left] = 0;
+				queue[tail++] = left;
+			} else {
+				dist[left] = INFINITY;
+			}
+		}
+		
+		boolean found = false;
+		while (head < tail) {
+			int left = queue[head++];
+			for (int right : adjacency[left]) {
+				int next = matchRight[right];
+				if (next == UNMATCHED) {
+					found = true;
+				} else if (dist[next] == INFINITY) {
+					dist[next] = dist[left] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * Helper function of Hopcroft-Karp that looks for an augmenting path from
+	 * the left vertex along the layers and flips it
+	 * 
+	 * @return True if found one. False if otherwise
+	 */
+	private boolean augmentAlongLayers(int left, int[] matchLeft,
+			int[] matchRight, int[] dist) {
+		for (int right : adjacency[left]) {
+			int next = matchRight[right];
+			if (next == UNMATCHED
+					|| (dist[next] == dist[left] + 1 && augmentAlongLayers(
+							next, matchLeft, matchRight, dist))) {
+				matchLeft[left] = right;
+				matchRight[right] = left;
+				return true;
+			}
+		}
+		dist[left] = INFINITY;
+		return false;
+	}
+	
+	/**
+	 * Helper function that looks for an augmenting path from the left vertex
+	 * and flips it. Fixed left vertices keep their right vertex
+	 * 
+	 * @return True if found one. False if otherwise
+	 */
+	private boolean augment(int left, int[] matchLeft, int[] matchRight,
+			BitSet fixed, boolean[] visited) {
+		for (int right : adjacency[left]) {
+			if (visited[right]) {
+				continue;
+			}
+			visited[right] = true;
+			
+			int next = matchRight[right];
+			if (next == UNMATCHED
+					|| (!fixed.get(next) && augment(next, matchLeft,
+							matchRight, fixed, visited))) {
+				matchLeft[left] = right;
+				matchRight[right] = left;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Helper function that checks if the left vertex has an edge to the right
+	 * vertex
+	 */
+	private boolean hasEdge(int left, int right) {
+		for (int other : adjacency[left]) {
+			if (other == right) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+}
@@ -39,4 +39,62 @@ public class Util {
 		return start.plus(schedulable.getDuration());
 	}
 	
+	/**
+	 * Calculates the end time of a scheduled activity in milliseconds without
+	 * creating any Joda object
+	 * 
+	 * @param start
+	 *            The start time of the schedulable in milliseconds
+	 * @param schedulable
+	 *            The schedulable itself
+	 * @return the end time in milliseconds if it is scheduled at the start time
+	 */
+	public static long getEndMillis(long start, Schedulable schedulable) {
+		return start + schedulable.getDuration().getMillis();
+	}
+	
+	/**
+	 * Scrambles the bits of a long so that close inputs give far apart
+	 * outputs. This is the finalizer of SplitMix64. 64-bit hashes of things
+	 * that are XORed together are built from it
+	 * 
+	 * @param value
+	 *            The value to scramble
+	 * @return The scrambled value
+	 */
+	public static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+	
+	/**
+	 * 64-bit hash of a schedulable scheduled at some time. The hash of a
+	 * timeline is the XOR of these, so scheduling or unscheduling something
+	 * changes it in O(1)
+	 * 
+	 * @param start
+	 *            The start time of the schedulable
+	 * @param schedulable
+	 *            The schedulable itself
+	 * @return The hash
+	 */
+	public static long longHashCode(DateTime start, Schedulable schedulable) {
+		return longHashCode(start.getMillis(), schedulable);
+	}
+	
+	/**
+	 * 64-bit hash of a schedulable scheduled at some time in milliseconds. See
+	 * longHashCode(DateTime, Schedulable)
+	 * 
+	 * @param start
+	 *            The start time of the schedulable in milliseconds
+	 * @param schedulable
+	 *            The schedulable itself
+	 * @return The hash
+	 */
+	public static long longHashCode(long start, Schedulable schedulable) {
+		return mix(mix(start) + schedulable.longHashCode());
+	}
+	
 }
@@ -3,6 +3,8 @@ package algo;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jgrapht.graph.SimpleWeightedGraph;
 import org.joda.time.DateTime;
@@ -14,6 +16,7 @@ import org.junit.Test;
 
 import schedulable.Activity;
 import schedulable.Transportation;
+import state.MatchingState;
 import state.MatchingStateTest;
 import time.LegalTimeline;
 import time.TimeBlock;
@@ -111,6 +114,58 @@ public class ASTTBMatcherTest {
 				((Activity) (schedule.get(1).getScheduledActivities()
 						.getSchedule().get(new DateTime(20)))).title);
 		
+		// the same with the pairs scheduled concurrently
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Assert.assertEquals(schedule,
+					ASTTBMatcher.matching(graph, asts, executor));
+		} finally {
+			executor.shutdown();
+		}
+		
+	}
+	
+	/**
+	 * No matching at all. Found before any scheduling
+	 */
+	@Test
+	public void testInfeasible() {
+		TimeBlock tb1 = new TimeBlock(1, new Interval(1, 10),
+				new Location(0, 0), new Location(0, 0));
+		TimeBlock tb2 = new TimeBlock(2, new Interval(15, 40), new Location(0,
+				0), new Location(0, 0));
+		SimpleWeightedGraph<Location, Transportation> graph = new SimpleWeightedGraph<Location, Transportation>(
+				Transportation.class);
+		
+		// 2 ASTs with only tb1
+		ArrayList<TimeBlock> availableTBs = new ArrayList<TimeBlock>();
+		Assert.assertTrue(availableTBs.add(tb1));
+		Set<ActivitySpanningTree> asts = new HashSet<ActivitySpanningTree>();
+		Assert.assertTrue(asts.add(new ActivitySpanningTree(1, availableTBs)));
+		Assert.assertTrue(asts.add(new ActivitySpanningTree(2, availableTBs)));
+		Assert.assertFalse(new MatchingState(asts).isCompletable());
+		Assert.assertNull(ASTTBMatcher.matching(graph, asts));
+		
+		// AST2 can only have tb2, and each of its activities fits in tb2 but
+		// both together don't
+		availableTBs = new ArrayList<TimeBlock>();
+		Assert.assertTrue(availableTBs.add(tb1));
+		Assert.assertTrue(availableTBs.add(tb2));
+		ActivitySpanningTree ast2 = new ActivitySpanningTree(2, availableTBs);
+		LegalTimeline legal = new LegalTimeline(new Interval(1, 100));
+		Assert.assertTrue(legal.schedule(1, 100));
+		Assert.assertTrue(ast2.addActivity(new Activity("hiking",
+				new Duration(15), new Location(0, 0), legal)));
+		Assert.assertTrue(ast2.addActivity(new Activity("biking",
+				new Duration(15), new Location(0, 0), legal)));
+		Assert.assertEquals(1, ast2.getAvailableTBs().size());
+		asts = new HashSet<ActivitySpanningTree>();
+		Assert.assertTrue(asts.add(new ActivitySpanningTree(1, availableTBs)));
+		Assert.assertTrue(asts.add(ast2));
+		Assert.assertTrue(new MatchingState(asts).isCompletable());
+		Assert.assertFalse(new MatchingState(asts, ASTTBMatcher.tooLong(asts))
+				.isCompletable());
+		Assert.assertNull(ASTTBMatcher.matching(graph, asts));
 	}
 	
 }
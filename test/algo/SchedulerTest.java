@@ -2,17 +2,25 @@ package algo;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.jgrapht.graph.SimpleWeightedGraph;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import schedulable.Activity;
 import schedulable.Transportation;
 import search.TreeSearchTest;
 import state.SchedulingStateTest;
+import state.TravelGraph;
+import time.LegalTimeline;
 import time.TimeBlock;
 import util.Debugger;
+import util.DeepCopy;
 import activities.ActivitySpanningTree;
 import activities.Location;
 
@@ -77,9 +85,134 @@ public class SchedulerTest {
 			case 3:
 				TreeSearchTest.testTb3Goal(tb);
 				break;
+				
+			}
+		}
+		
+	}
+	
+	@Test
+	public void testScheduleAllCached() {
+		ScheduleCache cache = new ScheduleCache();
+		ArrayList<TimeBlock> tbs = Scheduler.autoScheduleAll(graph, pairs,
+				cache);
+		Assert.assertEquals(Scheduler.autoScheduleAll(graph, pairs), tbs);
+		Assert.assertEquals(3, cache.size());
+		
+		// the second time only comes from the cache
+		ArrayList<TimeBlock> cached = Scheduler.autoScheduleAll(graph, pairs,
+				cache);
+		for (int i = 0; i < tbs.size(); i++) {
+			Assert.assertSame(tbs.get(i), cached.get(i));
+		}
+		
+		// failures are remembered too
+		ActivitySpanningTree ast = pairs.get(SchedulingStateTest.tb3);
+		TimeBlock tooShort = new TimeBlock(4, new Interval(1, 2),
+				new Location(0, 0), new Location(0, 0));
+		HashMap<TimeBlock, ActivitySpanningTree> failing = new HashMap<TimeBlock, ActivitySpanningTree>();
+		failing.put(tooShort, ast);
+		Assert.assertNull(Scheduler.autoScheduleAll(graph, failing, cache));
+		Assert.assertTrue(cache.contains(tooShort, ast));
+		Assert.assertNull(cache.get(tooShort, ast));
+		
+		// TBs and ASTs that only share the index are different pairs
+		Assert.assertFalse(cache.contains(new TimeBlock(tooShort), ast));
+		Assert.assertFalse(cache.contains(tooShort,
+				(ActivitySpanningTree) DeepCopy.copy(ast)));
+		Assert.assertEquals(4, cache.size());
+	}
+	
+	@Test
+	public void testScheduleAllConcurrently() {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			TravelGraph travelGraph = Scheduler.travelGraph(graph);
+			ScheduleCache cache = new ScheduleCache();
+			ArrayList<TimeBlock> tbs = Scheduler.autoScheduleAll(graph,
+					travelGraph, pairs, cache, executor);
+			Assert.assertEquals(Scheduler.autoScheduleAll(graph, pairs), tbs);
+			Assert.assertEquals(3, cache.size());
 			
+			// the second time only comes from the cache
+			ArrayList<TimeBlock> cached = Scheduler.autoScheduleAll(graph,
+					travelGraph, pairs, cache, executor);
+			for (int i = 0; i < tbs.size(); i++) {
+				Assert.assertSame(tbs.get(i), cached.get(i));
 			}
+			
+			// one pair can't be scheduled
+			HashMap<TimeBlock, ActivitySpanningTree> failing = new HashMap<TimeBlock, ActivitySpanningTree>(
+					pairs);
+			ActivitySpanningTree ast = failing.get(SchedulingStateTest.tb3);
+			failing.remove(SchedulingStateTest.tb3);
+			failing.put(new TimeBlock(3, new Interval(1, 2), new Location(0,
+					0), new Location(0, 0)), ast);
+			Assert.assertNull(Scheduler.autoScheduleAll(graph, travelGraph,
+					failing, cache, executor));
+			
+			// the failure is remembered, so nothing is submitted again
+			executor.shutdown();
+			Assert.assertNull(Scheduler.autoScheduleAll(graph, travelGraph,
+					failing, cache, executor));
+		} finally {
+			executor.shutdown();
 		}
+	}
+	
+	@Test
+	public void testLowerBounds() {
+		Location hotel = new Location(0, 0);
+		Location lake = new Location(5, 5);
+		SimpleWeightedGraph<Location, Transportation> graph = new SimpleWeightedGraph<Location, Transportation>(
+				Transportation.class);
+		Assert.assertTrue(graph.addVertex(hotel));
+		Assert.assertTrue(graph.addVertex(lake));
+		Assert.assertNotNull(graph.addEdge(hotel, lake, new Transportation(
+				new Duration(10), hotel, lake)));
+		
+		LegalTimeline legal = new LegalTimeline(new Interval(0, 100));
+		Assert.assertTrue(legal.schedule(0, 100));
+		Activity fishing = new Activity("fishing", new Duration(5), lake, legal);
+		ArrayList<TimeBlock> availableTBs = new ArrayList<TimeBlock>();
+		availableTBs.add(new TimeBlock(1, new Interval(0, 100), hotel, hotel));
+		ActivitySpanningTree ast = new ActivitySpanningTree(1, availableTBs);
+		Assert.assertTrue(ast.addActivity(fishing));
+		HashMap<TimeBlock, ActivitySpanningTree> pairs = new HashMap<TimeBlock, ActivitySpanningTree>();
+		
+		// 10ms there, 5ms fishing and 10ms back
+		TimeBlock tb = new TimeBlock(2, new Interval(0, 25), hotel, hotel);
+		Assert.assertTrue(Scheduler.lowerBoundsFit(graph, tb, ast));
+		pairs.put(tb, ast);
+		Assert.assertNotNull(Scheduler.autoScheduleAll(graph, pairs));
+		
+		// the bound only counts one edge per location, so the search has to
+		// find out this one is too short
+		tb = new TimeBlock(2, new Interval(0, 23), hotel, hotel);
+		Assert.assertTrue(Scheduler.lowerBoundsFit(graph, tb, ast));
+		pairs.clear();
+		pairs.put(tb, ast);
+		Assert.assertNull(Scheduler.autoScheduleAll(graph, pairs));
+		
+		// shorter than fishing plus the way there
+		tb = new TimeBlock(2, new Interval(0, 13), hotel, hotel);
+		Assert.assertFalse(Scheduler.lowerBoundsFit(graph, tb, ast));
+		pairs.clear();
+		pairs.put(tb, ast);
+		Assert.assertNull(Scheduler.autoScheduleAll(graph, pairs));
+		
+		// no legal time within the TB
+		tb = new TimeBlock(3, new Interval(100, 200), hotel, hotel);
+		Assert.assertFalse(Scheduler.lowerBoundsFit(graph, tb, ast));
+		pairs.clear();
+		pairs.put(tb, ast);
+		Assert.assertNull(Scheduler.autoScheduleAll(graph, pairs));
 		
+		// nowhere to go from the lake
+		tb = new TimeBlock(4, new Interval(0, 100), hotel, new Location(1, 1));
+		Assert.assertFalse(Scheduler.lowerBoundsFit(graph, tb, ast));
+		pairs.clear();
+		pairs.put(tb, ast);
+		Assert.assertNull(Scheduler.autoScheduleAll(graph, pairs));
 	}
 }
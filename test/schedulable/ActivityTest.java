@@ -89,6 +89,35 @@ public class ActivityTest {
 		Assert.assertEquals(legalTimeline, activity.legalTimeline);
 	}
 	
+	@Test
+	public void testLongHashCode() {
+		LegalTimeline legalTimeline = new LegalTimeline(new Interval(1, 20));
+		Assert.assertTrue(legalTimeline.schedule(2, 6));
+		activity = new Activity("title", new Duration(2), new Location(1, 2),
+				legalTimeline);
+		long hash = activity.longHashCode();
+		Activity copy = (Activity) DeepCopy.copy(activity);
+		Assert.assertEquals(hash, copy.longHashCode());
+		
+		// changed through the timeline the activity was given
+		Assert.assertTrue(legalTimeline.schedule(10, 15));
+		Assert.assertFalse(hash == activity.longHashCode());
+		Assert.assertFalse(activity.equals(copy));
+		Assert.assertTrue(copy.addLegalTime(new Interval(10, 15)));
+		Assert.assertEquals(activity, copy);
+		Assert.assertEquals(activity.longHashCode(), copy.longHashCode());
+		
+		// changed in place
+		hash = activity.longHashCode();
+		Assert.assertTrue(legalTimeline.setEarliestAvailable(new DateTime(8)));
+		Assert.assertFalse(hash == activity.longHashCode());
+		
+		// other fields
+		hash = copy.longHashCode();
+		copy.title = "other";
+		Assert.assertFalse(hash == copy.longHashCode());
+	}
+	
 	@Test
 	public void testForwardChecking() {
 		activity = new Activity("", new Duration(2), new LegalTimeline(
@@ -101,6 +130,11 @@ public class ActivityTest {
 		
 		Assert.assertTrue(activity.addLegalTime(new Interval(3, 5)));
 		Assert.assertTrue(activity.forwardChecking());
+		
+		// with a bound, the legal timeline is left as is
+		Assert.assertTrue(activity.forwardChecking(new DateTime(3)));
+		Assert.assertFalse(activity.forwardChecking(new DateTime(4)));
+		Assert.assertTrue(activity.forwardChecking());
 	}
 	
 	@Test
@@ -1,17 +1,28 @@
 package search;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.TreeMap;
 
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
+import org.joda.time.Interval;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import schedulable.Activity;
 import schedulable.Schedulable;
+import state.GraphSearchState;
+import state.LazySearchState;
+import state.PrioritizedState;
 import state.SchedulingState;
 import state.SchedulingStateTest;
+import state.SearchState;
+import state.SuccessorIterator;
+import state.TravelMatrix;
 import time.TimeBlock;
 import activities.Location;
 
@@ -40,7 +51,7 @@ public class TreeSearchTest {
 	public void testNextGoal1() {
 		search = new TreeSearch(new AStar(), state1);
 		SchedulingState goal = (SchedulingState) search.nextGoal();
-		Assert.assertTrue(goal.activities.isEmpty());
+		Assert.assertTrue(goal.getActivities().isEmpty());
 		testTb1Goal(goal.getTb());
 		
 		Assert.assertTrue(goal.checkGoal());
@@ -50,36 +61,313 @@ public class TreeSearchTest {
 	public void testNextGoal2() {
 		search = new TreeSearch(new AStar(), state2);
 		SchedulingState goal = (SchedulingState) search.nextGoal();
-		Assert.assertTrue(goal.activities.isEmpty());
+		Assert.assertTrue(goal.getActivities().isEmpty());
 		testTb2Goal(goal.getTb());
 		
 		Assert.assertTrue(goal.checkGoal());
 	}
 	
+	@Test
+	public void testGraphSearch() {
+		SchedulingStateTest.initHelper();
+		TreeSearch tree = new TreeSearch(new AStar(), SchedulingStateTest.state1);
+		SchedulingState treeGoal = (SchedulingState) tree.nextGoal();
+		
+		SchedulingStateTest.initHelper();
+		HashClosedSet closedSet = new HashClosedSet();
+		search = new TreeSearch(new AStar(), SchedulingStateTest.state1,
+				closedSet);
+		SchedulingState goal = (SchedulingState) search.nextGoal();
+		Assert.assertTrue(goal.checkGoal());
+		
+		// same cost, though maybe another order, never more expansions
+		Assert.assertEquals(treeGoal.getG(), goal.getG());
+		Assert.assertTrue(search.getNumExpanded() <= tree.getNumExpanded());
+		Assert.assertTrue(closedSet.size() > 0);
+		
+		// a duplicate isn't searched again
+		Assert.assertFalse(closedSet.add(goal));
+		Assert.assertTrue(closedSet.isCurrent(goal));
+		
+		SchedulingStateTest.initHelper();
+		search = new TreeSearch(new DFS(), SchedulingStateTest.state2,
+				new HashClosedSet());
+		goal = (SchedulingState) search.nextGoal();
+		Assert.assertTrue(goal.checkGoal());
+	}
+	
+	@Test
+	public void testDominanceStore() {
+		SchedulingStateTest.initHelper();
+		TreeSearch tree = new TreeSearch(new AStar(), SchedulingStateTest.state3);
+		SchedulingState treeGoal = (SchedulingState) tree.nextGoal();
+		
+		SchedulingStateTest.initHelper();
+		DominanceStore store = new DominanceStore();
+		search = new TreeSearch(new AStar(), SchedulingStateTest.state3, store);
+		SchedulingState goal = (SchedulingState) search.nextGoal();
+		Assert.assertTrue(goal.checkGoal());
+		testTb3Goal(goal.getTb());
+		Assert.assertEquals(treeGoal.getG(), goal.getG());
+		Assert.assertTrue(search.getNumExpanded() <= tree.getNumExpanded());
+		
+		// a state with the same key that can't start earlier is dominated
+		SchedulingStateTest.initHelper();
+		store = new DominanceStore();
+		SchedulingState child = (SchedulingState) SchedulingStateTest.state1
+				.successors().get(0);
+		Assert.assertTrue(store.add(child));
+		Assert.assertFalse(store.add(child.clone()));
+		Assert.assertEquals(child.getDominanceKey(), child.clone()
+				.getDominanceKey());
+		Assert.assertTrue(store.isCurrent(child));
+		
+		// going back to the end location where the TB starts keeps the key of
+		// the initial state apart from the end, which must not drop the goal
+		TimeBlock tb = new TimeBlock(1, new Interval(1, 20),
+				new Location(0, 0), new Location(0, 0));
+		search = new TreeSearch(new IndexedAStar(), new SchedulingState(tb,
+				SchedulingStateTest.graph, new TravelMatrix(
+						SchedulingStateTest.graph), new HashSet<Activity>()),
+				new DominanceStore());
+		goal = (SchedulingState) search.nextGoal();
+		Assert.assertNotNull(goal);
+		Assert.assertTrue(goal.checkGoal());
+	}
+	
+	@Test
+	public void testIndexedAStar() {
+		SchedulingStateTest.initHelper();
+		search = new TreeSearch(new IndexedAStar(), SchedulingStateTest.state1);
+		SchedulingState goal = (SchedulingState) search.nextGoal();
+		testTb1Goal(goal.getTb());
+		
+		// a state with the same signature replaces one with a higher f
+		IndexedAStar heap = new IndexedAStar();
+		KeyedState a = new KeyedState("a", 5);
+		KeyedState b = new KeyedState("b", 3);
+		KeyedState cheaperA = new KeyedState("a", 2);
+		Assert.assertTrue(heap.add(a));
+		Assert.assertTrue(heap.add(b));
+		Assert.assertTrue(heap.add(cheaperA));
+		Assert.assertFalse(heap.add(new KeyedState("a", 7)));
+		Assert.assertFalse(heap.add(new KeyedState("b", 3)));
+		Assert.assertEquals(2, heap.size());
+		Assert.assertSame(cheaperA, heap.pop());
+		Assert.assertSame(b, heap.pop());
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertNull(heap.pop());
+		
+		// a cheaper way to a scheduling state on the heap replaces it
+		SchedulingStateTest.initHelper();
+		HashMap<Object, SchedulingState> first = new HashMap<Object, SchedulingState>();
+		SchedulingState worse = null;
+		SchedulingState better = null;
+		ArrayList<SearchState> frontier = new ArrayList<SearchState>();
+		frontier.add(SchedulingStateTest.state1);
+		while (better == null && !frontier.isEmpty()) {
+			SchedulingState state = (SchedulingState) frontier.remove(0);
+			SchedulingState seen = first.get(state.getDominanceKey());
+			if (seen == null) {
+				first.put(state.getDominanceKey(), state);
+			} else if (seen.getDominanceValue() != state.getDominanceValue()) {
+				boolean later = seen.getDominanceValue() > state
+						.getDominanceValue();
+				worse = later ? seen : state;
+				better = later ? state : seen;
+			}
+			frontier.addAll(state.successors());
+		}
+		Assert.assertNotNull(better);
+		Assert.assertTrue(heap.add(worse));
+		Assert.assertTrue(heap.add(better));
+		Assert.assertFalse(heap.add(worse));
+		Assert.assertEquals(1, heap.size());
+		Assert.assertSame(better, heap.pop());
+		Assert.assertTrue(heap.isEmpty());
+		
+		// once popped, the signature can be added again
+		Assert.assertTrue(heap.add(a));
+		Assert.assertSame(a, heap.pop());
+		
+		// pops in order of f
+		for (int i = 0; i < 100; i++) {
+			heap.add(new KeyedState(Integer.toString(i), (i * 37) % 100));
+		}
+		for (int i = 0; i < 100; i++) {
+			Assert.assertEquals(i, ((KeyedState) heap.pop()).getF());
+		}
+	}
+	
+	@Test
+	public void testRadixAStar() {
+		SchedulingStateTest.initHelper();
+		search = new TreeSearch(new RadixAStar(), SchedulingStateTest.state1);
+		SchedulingState goal = (SchedulingState) search.nextGoal();
+		Assert.assertTrue(goal.checkGoal());
+		Assert.assertEquals(19, goal.getG());
+		
+		// pops in order of f, also while adding
+		RadixAStar heap = new RadixAStar();
+		for (int i = 0; i < 100; i++) {
+			heap.add(new KeyedState(Integer.toString(i),
+					1000 + (i * 37) % 100));
+		}
+		for (int i = 0; i < 50; i++) {
+			Assert.assertEquals(1000 + i, ((KeyedState) heap.pop()).getF());
+			heap.add(new KeyedState("more", 1100 + i));
+		}
+		for (int i = 50; i < 150; i++) {
+			Assert.assertEquals(1000 + i, ((KeyedState) heap.pop()).getF());
+		}
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertNull(heap.pop());
+		
+		// an f below the last one popped still comes out first
+		heap.add(new KeyedState("a", 5));
+		heap.add(new KeyedState("b", 8));
+		Assert.assertEquals(5, ((KeyedState) heap.pop()).getF());
+		heap.add(new KeyedState("c", 3));
+		heap.add(new KeyedState("d", 4));
+		Assert.assertEquals(3, heap.size());
+		Assert.assertEquals(3, ((KeyedState) heap.pop()).getF());
+		Assert.assertEquals(4, ((KeyedState) heap.pop()).getF());
+		Assert.assertEquals(8, ((KeyedState) heap.pop()).getF());
+		Assert.assertTrue(heap.isEmpty());
+	}
+	
+	@Test
+	public void testLazyDFS() {
+		// 10 successors per state, the goals at depth 4
+		CountingState.generated = 0;
+		search = new TreeSearch(new DFS(), new CountingState(0));
+		SearchState goal = search.nextGoal();
+		Assert.assertTrue(goal.checkGoal());
+		Assert.assertEquals(5, search.getNumExpanded());
+		
+		// only the states on the path are generated
+		Assert.assertEquals(4, CountingState.generated);
+		
+		// exhausted iterators under and over a state
+		DFS dfs = new DFS();
+		SearchState state = new CountingState(0);
+		dfs.add(state);
+		dfs.addAll(new ArrayList<SearchState>());
+		Assert.assertFalse(dfs.isEmpty());
+		Assert.assertFalse(dfs.isEmpty());
+		Assert.assertSame(state, dfs.pop());
+		Assert.assertTrue(dfs.isEmpty());
+		Assert.assertNull(dfs.pop());
+	}
+	
+	/**
+	 * A tree that counts the states generated
+	 */
+	private static class CountingState implements LazySearchState {
+		static int generated;
+		private final int depth;
+		
+		CountingState(int depth) {
+			this.depth = depth;
+		}
+		
+		@Override
+		public ArrayList<SearchState> successors() {
+			ArrayList<SearchState> successors = new ArrayList<SearchState>();
+			Iterator<SearchState> itr = successorIterator();
+			while (itr.hasNext()) {
+				successors.add(itr.next());
+			}
+			return successors;
+		}
+		
+		@Override
+		public Iterator<SearchState> successorIterator() {
+			return new SuccessorIterator() {
+				private int left = 10;
+				
+				@Override
+				protected SearchState generate() {
+					if (left-- == 0) {
+						return null;
+					}
+					generated++;
+					return new CountingState(depth + 1);
+				}
+			};
+		}
+		
+		@Override
+		public boolean checkGoal() {
+			return depth == 4;
+		}
+	}
+	
+	/**
+	 * A state with only a signature and an f value
+	 */
+	private static class KeyedState implements GraphSearchState,
+			PrioritizedState {
+		private final String signature;
+		private final long f;
+		
+		KeyedState(String signature, long f) {
+			this.signature = signature;
+			this.f = f;
+		}
+		
+		@Override
+		public ArrayList<SearchState> successors() {
+			return new ArrayList<SearchState>();
+		}
+		
+		@Override
+		public boolean checkGoal() {
+			return false;
+		}
+		
+		@Override
+		public Object getSignature() {
+			return signature;
+		}
+		
+		@Override
+		public long getG() {
+			return f;
+		}
+		
+		@Override
+		public long getF() {
+			return f;
+		}
+	}
+	
 	// Allow other tests to call
 	public static void testTb1Goal(TimeBlock tb) {
 		TreeMap<DateTime, Schedulable> map = tb.getScheduledActivities()
 				.getSchedule();
 		
-		// 0 - 0 start, 1 - 5 transportation, 5 - 7 museum
-		// 7 - 10 transportation, 10 - 13 concert
-		// 13 - 15 transportation, 15 - 16 park
-		// 16 - 19 transportation, 19 - 19 end
+		// 0 - 0 start, 1 - 4 transportation, 4 - 5 park
+		// 5 - 7 transportation, 7 - 10 concert
+		// 10 - 13 transportation, 13 - 15 museum
+		// 15 - 19 transportation, 19 - 19 end
+		// The same route backwards costs the same. The travel heuristic makes
+		// A* reach this one first
 		Assert.assertEquals(new Location(0, 0),
 				((Activity) (map.get(new DateTime(0)))).location);
-		Assert.assertEquals(new Duration(4), map.get(new DateTime(1))
+		Assert.assertEquals(new Duration(3), map.get(new DateTime(1))
 				.getDuration());
-		Assert.assertEquals("museum",
-				((Activity) (map.get(new DateTime(5)))).title);
-		Assert.assertEquals(new Duration(3), map.get(new DateTime(7))
+		Assert.assertEquals("park",
+				((Activity) (map.get(new DateTime(4)))).title);
+		Assert.assertEquals(new Duration(2), map.get(new DateTime(5))
 				.getDuration());
 		Assert.assertEquals("concert",
-				((Activity) (map.get(new DateTime(10)))).title);
-		Assert.assertEquals(new Duration(2), map.get(new DateTime(13))
+				((Activity) (map.get(new DateTime(7)))).title);
+		Assert.assertEquals(new Duration(3), map.get(new DateTime(10))
 				.getDuration());
-		Assert.assertEquals("park",
-				((Activity) (map.get(new DateTime(15)))).title);
-		Assert.assertEquals(new Duration(3), map.get(new DateTime(16))
+		Assert.assertEquals("museum",
+				((Activity) (map.get(new DateTime(13)))).title);
+		Assert.assertEquals(new Duration(4), map.get(new DateTime(15))
 				.getDuration());
 		Assert.assertEquals(new Location(0, 0),
 				((Activity) (map.get(new DateTime(19)))).location);
@@ -0,0 +1,74 @@
+package state;
+
+import java.util.Random;
+
+import org.jgrapht.graph.SimpleWeightedGraph;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import algo.Scheduler;
+import schedulable.Transportation;
+import activities.Location;
+
+public class CompactTravelGraphTest {
+	
+	@Test
+	public void testCompactTravelGraph() {
+		Random random = new Random(3);
+		SimpleWeightedGraph<Location, Transportation> graph = new SimpleWeightedGraph<Location, Transportation>(
+				Transportation.class);
+		Location[] locations = new Location[300];
+		for (int i = 0; i < locations.length; i++) {
+			locations[i] = new Location(i, i);
+			Assert.assertTrue(graph.addVertex(locations[i]));
+		}
+		for (int i = 0; i < 1000; i++) {
+			Location from = locations[random.nextInt(locations.length)];
+			Location to = locations[random.nextInt(locations.length)];
+			if (!from.equals(to) && !graph.containsEdge(from, to)) {
+				Assert.assertTrue(graph.addEdge(from, to, new Transportation(
+						new Duration(random.nextInt(100)), from, to)));
+			}
+		}
+		
+		CompactTravelGraph compact = new CompactTravelGraph(graph);
+		TravelMatrix matrix = new TravelMatrix(graph);
+		Assert.assertEquals(locations.length, compact.size());
+		Assert.assertEquals(TravelGraph.NONE,
+				compact.getId(new Location(-1, -1)));
+		
+		// the same travel as the matrix, both ways
+		for (Location from : locations) {
+			int fromId = compact.getId(from);
+			Assert.assertEquals(from, compact.getLocation(fromId));
+			Assert.assertEquals(0, compact.getTime(fromId, fromId));
+			Assert.assertNull(compact.getTransportation(fromId, fromId));
+			for (Location to : locations) {
+				if (from.equals(to)) {
+					continue;
+				}
+				int toId = compact.getId(to);
+				long time = matrix.getTime(matrix.getId(from),
+						matrix.getId(to));
+				Assert.assertEquals(time, compact.getTime(fromId, toId));
+				Transportation route = compact.getTransportation(fromId, toId);
+				Transportation edge = graph.getEdge(from, to);
+				if (time == TravelGraph.UNREACHABLE) {
+					Assert.assertNull(route);
+				} else if (edge != null
+						&& edge.getDuration().getMillis() == time) {
+					Assert.assertSame(edge, route);
+				} else {
+					Assert.assertEquals(new Duration(time), route.getDuration());
+					Assert.assertSame(route,
+							compact.getTransportation(toId, fromId));
+				}
+			}
+		}
+		
+		// too many locations for a matrix
+		Assert.assertTrue(Scheduler.travelGraph(graph) instanceof CompactTravelGraph);
+	}
+	
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -12,6 +13,8 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import search.DFS;
+import search.TreeSearch;
 import time.TimeBlock;
 import activities.ActivitySpanningTree;
 import activities.Location;
@@ -63,10 +66,11 @@ public class MatchingStateTest {
 		Assert.assertEquals(1, entry.getValue().getIndex());
 		Assert.assertEquals(3, entry.getKey().getIndex());
 		
+		// ast1 - 3 leaves ast3 only tb1, so ast3 goes next
 		successors = successors.get(1).successors();
-		Assert.assertEquals(2, successors.size());
+		Assert.assertEquals(1, successors.size());
 		
-		// ast1 - 3, ast2 - 1
+		// ast1 - 3, ast3 - 1
 		child = (MatchingState) successors.get(0);
 		Assert.assertFalse(child.checkGoal());
 		pairs = child.getMatches();
@@ -78,36 +82,16 @@ public class MatchingStateTest {
 			case 1:
 				Assert.assertEquals(3, entry.getKey().getIndex());
 				break;
-			case 2:
+			case 3:
 				Assert.assertEquals(1, entry.getKey().getIndex());
 				break;
+			default:
+				Assert.fail();
 			}
 			
 		}
 		
-		// ast1 - 3, ast2 - 2
-		child = (MatchingState) successors.get(1);
-		Assert.assertFalse(child.checkGoal());
-		pairs = child.getMatches();
-		Assert.assertEquals(2, pairs.size());
-		itr = pairs.entrySet().iterator();
-		while (itr.hasNext()) {
-			entry = itr.next();
-			switch (entry.getValue().getIndex()) {
-			case 1:
-				Assert.assertEquals(3, entry.getKey().getIndex());
-				break;
-			case 2:
-				Assert.assertEquals(2, entry.getKey().getIndex());
-				break;
-			}
-			
-		}
-		
-		// ast1 - 3, ast2 - 1, ast3 - not valid
-		Assert.assertTrue(successors.get(0).successors().isEmpty());
-		
-		successors = successors.get(1).successors();
+		successors = successors.get(0).successors();
 		Assert.assertEquals(1, successors.size());
 		
 		// ast1 - 3, ast2 - 2, ast3 - 1. Solution
@@ -134,6 +118,135 @@ public class MatchingStateTest {
 		
 	}
 	
+	@Test
+	public void testSuccessorIterator() {
+		state = new MatchingState(asts);
+		ArrayList<SearchState> successors = state.successors();
+		Iterator<SearchState> itr = state.successorIterator();
+		for (SearchState successor : successors) {
+			Assert.assertTrue(itr.hasNext());
+			Assert.assertEquals(((MatchingState) successor).getMatches(),
+					((MatchingState) itr.next()).getMatches());
+		}
+		Assert.assertFalse(itr.hasNext());
+		
+		// a nogood added after the iterator is made is skipped
+		Set<Pairing> nogoods = new HashSet<Pairing>();
+		state = new MatchingState(asts, nogoods);
+		itr = state.successorIterator();
+		Map.Entry<TimeBlock, ActivitySpanningTree> first = ((MatchingState) successors
+				.get(0)).getMatches().entrySet().iterator().next();
+		nogoods.add(new Pairing(first.getKey(), first.getValue()));
+		Assert.assertTrue(itr.hasNext());
+		Assert.assertEquals(((MatchingState) successors.get(1)).getMatches(),
+				((MatchingState) itr.next()).getMatches());
+		Assert.assertFalse(itr.hasNext());
+	}
+	
+	@Test
+	public void testOrdering() {
+		state = new MatchingState(asts);
+		
+		// ast1 and ast3 both have 2 tbs, ast1 has the lower index
+		ArrayList<SearchState> successors = state.successors();
+		Assert.assertEquals(2, successors.size());
+		
+		// ast1 - 2 leaves ast2 and ast3 tb1 and tb3. Tb1 is the longest
+		successors = successors.get(0).successors();
+		Assert.assertEquals(2, successors.size());
+		HashMap<TimeBlock, ActivitySpanningTree> pairs = ((MatchingState) successors
+				.get(0)).getMatches();
+		Assert.assertEquals(2, pairs.size());
+		for (Entry<TimeBlock, ActivitySpanningTree> entry : pairs.entrySet()) {
+			if (entry.getValue().getIndex() == 2) {
+				Assert.assertEquals(1, entry.getKey().getIndex());
+			} else {
+				Assert.assertEquals(1, entry.getValue().getIndex());
+			}
+		}
+		
+		// dfs expands the successors in the order they are listed
+		TreeSearch search = new TreeSearch(new DFS(), new MatchingState(asts));
+		pairs = ((MatchingState) search.nextGoal()).getMatches();
+		for (Entry<TimeBlock, ActivitySpanningTree> entry : pairs.entrySet()) {
+			Assert.assertEquals(new int[] { 0, 2, 1, 3 }[entry.getValue()
+					.getIndex()], entry.getKey().getIndex());
+		}
+	}
+	
+	@Test
+	public void testIsCompletable() {
+		Assert.assertTrue(new MatchingState(asts).isCompletable());
+		
+		// ast1 can only have tb2, ast3 only tb1, ast2 only tb3
+		Set<Pairing> nogoods = new HashSet<Pairing>();
+		Pairing ast2Tb3 = null;
+		for (ActivitySpanningTree ast : asts) {
+			for (TimeBlock tb : ast.getAvailableTBs()) {
+				if (tb.getIndex() == 3 && ast.getIndex() != 2) {
+					nogoods.add(new Pairing(tb, ast));
+				} else if (tb.getIndex() == 3) {
+					ast2Tb3 = new Pairing(tb, ast);
+				}
+			}
+		}
+		state = new MatchingState(asts, nogoods);
+		Assert.assertTrue(state.isCompletable());
+		
+		// now ast2 has nothing left
+		nogoods.add(ast2Tb3);
+		Assert.assertFalse(state.isCompletable());
+		Assert.assertTrue(state.successors().isEmpty());
+	}
+	
+	@Test
+	public void testNogoods() {
+		// ast1 - tb3 is known to fail. Nogoods tell ASTs apart by identity,
+		// so they are made from the ASTs that are searched
+		initHelper();
+		ActivitySpanningTree ast1 = null;
+		for (ActivitySpanningTree ast : asts) {
+			if (ast.getIndex() == 1) {
+				ast1 = ast;
+			}
+		}
+		TimeBlock tb3 = ast1.getAvailableTBs().get(1);
+		Assert.assertEquals(3, tb3.getIndex());
+		Set<Pairing> nogoods = new HashSet<Pairing>();
+		nogoods.add(new Pairing(tb3, ast1));
+		
+		// 1 of the 3 solutions has ast1 - tb3
+		TreeSearch search = new TreeSearch(new DFS(), new MatchingState(asts,
+				nogoods));
+		MatchingState goal;
+		int numGoals = 0;
+		while ((goal = (MatchingState) search.nextGoal()) != null) {
+			Assert.assertEquals(1, goal.getMatches().get(
+					ast1.getAvailableTBs().get(0)).getIndex());
+			numGoals++;
+		}
+		Assert.assertEquals(2, numGoals);
+		
+		// a nogood found after a state is generated prunes it too
+		initHelper();
+		nogoods = new HashSet<Pairing>();
+		search = new TreeSearch(new DFS(), new MatchingState(asts, nogoods));
+		goal = (MatchingState) search.nextGoal();
+		Assert.assertTrue(goal.checkGoal());
+		Map.Entry<TimeBlock, ActivitySpanningTree> match = goal.getMatches()
+				.entrySet().iterator().next();
+		nogoods.add(new Pairing(match.getKey(), match.getValue()));
+		Assert.assertFalse(goal.checkGoal());
+		Assert.assertTrue(goal.successors().isEmpty());
+		while ((goal = (MatchingState) search.nextGoal()) != null) {
+			for (Map.Entry<TimeBlock, ActivitySpanningTree> other : goal
+					.getMatches().entrySet()) {
+				Assert.assertFalse(nogoods.contains(new Pairing(other.getKey(),
+						other.getValue())));
+			}
+		}
+	}
+	
 	public static void initHelper() {
 		ArrayList<TimeBlock> availableTBs;
 		asts = new HashSet<ActivitySpanningTree>();
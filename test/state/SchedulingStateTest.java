@@ -131,24 +131,28 @@ public class SchedulingStateTest {
 			SchedulingState child = (SchedulingState) successors.get(i);
 			TreeMap<DateTime, Schedulable> map = child.getTb()
 					.getScheduledActivities().getSchedule();
-			switch ((int) child.getTb().lastEndTime().getMillis()) {
-			case 15:
+			switch (((Activity) child.getTb().getLastScheduled().getValue()).title) {
+			case "park":
+				// museum - concert - park takes 5, faster than the 7 of the
+				// museum - park edge, so the route is scheduled as one leg.
 				// 0 - 0 start, 1 - 5 transportation, 5 - 7 museum
-				// 7 - 14 transportation, 14 - 15 park
+				// 7 - 12 transportation through concert, 12 - 13 park
 				Assert.assertEquals(start, map.get(new DateTime(0)));
 				Assert.assertEquals(new Duration(4), map.get(new DateTime(1))
 						.getDuration());
 				Assert.assertEquals("museum",
 						((Activity) (map.get(new DateTime(5)))).title);
-				Assert.assertEquals(new Duration(7), map.get(new DateTime(7))
+				Assert.assertEquals(new Duration(5), map.get(new DateTime(7))
 						.getDuration());
 				Assert.assertEquals("park",
-						((Activity) (map.get(new DateTime(14)))).title);
+						((Activity) (map.get(new DateTime(12)))).title);
+				Assert.assertEquals(new DateTime(13), child.getTb()
+						.lastEndTime());
 				parent = child;
 				Assert.assertFalse(child.checkGoal());
 				break;
 			
-			case 13:
+			case "concert":
 				// 0 - 0 start, 1 - 5 transportation, 5 - 7 museum,
 				// 7 - 10 transportation, 10 - 13 concert
 				Assert.assertEquals(start, map.get(new DateTime(0)));
@@ -160,9 +164,14 @@ public class SchedulingStateTest {
 						.getDuration());
 				Assert.assertEquals("concert",
 						((Activity) (map.get(new DateTime(10)))).title);
+				Assert.assertEquals(new DateTime(13), child.getTb()
+						.lastEndTime());
 				Assert.assertFalse(child.checkGoal());
 				break;
 			
+			default:
+				fail("cannot find successor match");
+				break;
 			}
 			Assert.assertEquals(1, child.getActivities().size());
 		}
@@ -178,22 +187,22 @@ public class SchedulingStateTest {
 					.getScheduledActivities().getSchedule();
 			
 			// 0 - 0 start, 1 - 5 transportation, 5 - 7 museum
-			// 7 - 14 transportation, 14 - 15 park
-			// 15 - 17 transportation, 17 - 20 concert
+			// 7 - 12 transportation through concert, 12 - 13 park
+			// 13 - 15 transportation, 15 - 18 concert
 			Assert.assertEquals(start, map.get(new DateTime(0)));
 			Assert.assertEquals(new Duration(4), map.get(new DateTime(1))
 					.getDuration());
 			Assert.assertEquals("museum",
 					((Activity) (map.get(new DateTime(5)))).title);
-			Assert.assertEquals(new Duration(7), map.get(new DateTime(7))
+			Assert.assertEquals(new Duration(5), map.get(new DateTime(7))
 					.getDuration());
 			Assert.assertEquals("park",
-					((Activity) (map.get(new DateTime(14)))).title);
-			Assert.assertEquals(new Duration(2), map.get(new DateTime(15))
+					((Activity) (map.get(new DateTime(12)))).title);
+			Assert.assertEquals(new Duration(2), map.get(new DateTime(13))
 					.getDuration());
 			Assert.assertEquals("concert",
-					((Activity) (map.get(new DateTime(17)))).title);
-			Assert.assertEquals(new DateTime(20), child.getTb().lastEndTime());
+					((Activity) (map.get(new DateTime(15)))).title);
+			Assert.assertEquals(new DateTime(18), child.getTb().lastEndTime());
 			parent = child;
 			Assert.assertFalse(child.checkGoal());
 		}
@@ -209,26 +218,26 @@ public class SchedulingStateTest {
 					.getScheduledActivities().getSchedule();
 			
 			// 0 - 0 start, 1 - 5 transportation, 5 - 7 museum
-			// 7 - 14 transportation, 14 - 15 park
-			// 15 - 17 transportation, 17 - 20 concert
-			// 20 - 25 transportation, 25 - 25 end
+			// 7 - 12 transportation, 12 - 13 park
+			// 13 - 15 transportation, 15 - 18 concert
+			// 18 - 23 transportation, 23 - 23 end
 			Assert.assertEquals(start, map.get(new DateTime(0)));
 			Assert.assertEquals(new Duration(4), map.get(new DateTime(1))
 					.getDuration());
 			Assert.assertEquals("museum",
 					((Activity) (map.get(new DateTime(5)))).title);
-			Assert.assertEquals(new Duration(7), map.get(new DateTime(7))
+			Assert.assertEquals(new Duration(5), map.get(new DateTime(7))
 					.getDuration());
 			Assert.assertEquals("park",
-					((Activity) (map.get(new DateTime(14)))).title);
-			Assert.assertEquals(new Duration(2), map.get(new DateTime(15))
+					((Activity) (map.get(new DateTime(12)))).title);
+			Assert.assertEquals(new Duration(2), map.get(new DateTime(13))
 					.getDuration());
 			Assert.assertEquals("concert",
-					((Activity) (map.get(new DateTime(17)))).title);
-			Assert.assertEquals(new Duration(5), map.get(new DateTime(20))
+					((Activity) (map.get(new DateTime(15)))).title);
+			Assert.assertEquals(new Duration(5), map.get(new DateTime(18))
 					.getDuration());
-			Assert.assertEquals(end, map.get(new DateTime(25)));
-			Assert.assertEquals(new DateTime(25), child.getTb().lastEndTime());
+			Assert.assertEquals(end, map.get(new DateTime(23)));
+			Assert.assertEquals(new DateTime(23), child.getTb().lastEndTime());
 			Assert.assertTrue(child.checkGoal());
 			
 		}
@@ -327,7 +336,7 @@ public class SchedulingStateTest {
 						((Activity) (map.get(new DateTime(17)))).title);
 				Assert.assertFalse(child.checkGoal());
 				break;
-			
+				
 			}
 			Assert.assertEquals(1, child.getActivities().size());
 		}
@@ -399,12 +408,10 @@ public class SchedulingStateTest {
 		Set<Activity> activitiesSameLoc = new HashSet<Activity>();
 		activitiesSameLoc.add(shower);
 		activitiesSameLoc.add(tv);
+		activitiesSameLoc.add(swimming);
 		
 		SchedulingState state4 = new SchedulingState(tb3, graph,
-				activitiesSameLoc);
-		state4.activities.add(swimming);
-		state4.activities.add(shower);
-		state4.activities.add(tv);
+				new TravelMatrix(graph), activitiesSameLoc);
 		
 		// start - shower - swimming - tv - end
 		successors = state4.successors();
@@ -415,6 +422,157 @@ public class SchedulingStateTest {
 		
 	}
 	
+	@Test
+	public void testManyActivities() {
+		// more activities than bits in a long, all at the start location
+		LegalTimeline legal = new LegalTimeline(new Interval(1, 200));
+		Assert.assertTrue(legal.schedule(1, 200));
+		Set<Activity> activities = new HashSet<Activity>();
+		for (int i = 0; i < 70; i++) {
+			Assert.assertTrue(activities.add(new Activity("chore " + i,
+					new Duration(1), new Location(0, 0), legal)));
+		}
+		SchedulingState state = new SchedulingState(new TimeBlock(1,
+				new Interval(1, 200), new Location(0, 0), new Location(0, 0)),
+				graph, new TravelMatrix(graph), activities);
+		Assert.assertEquals(activities, state.getActivities());
+		Assert.assertEquals(70, state.getH());
+		
+		ArrayList<SearchState> successors = state.successors();
+		Assert.assertEquals(70, successors.size());
+		Set<Activity> scheduled = new HashSet<Activity>();
+		for (SearchState successor : successors) {
+			Set<Activity> left = ((SchedulingState) successor).getActivities();
+			Assert.assertEquals(69, left.size());
+			Set<Activity> diff = new HashSet<Activity>(activities);
+			diff.removeAll(left);
+			Assert.assertEquals(1, diff.size());
+			scheduled.addAll(diff);
+		}
+		Assert.assertEquals(activities, scheduled);
+		
+		// all the way down
+		while (!state.checkGoal()) {
+			state = (SchedulingState) state.successors().get(0);
+		}
+		Assert.assertTrue(state.getActivities().isEmpty());
+		Assert.assertEquals(71, state.getG());
+	}
+	
+	@Test
+	public void testSuccessorsLeaveParentUnchanged() {
+		initHelper();
+		TimeBlock before = new TimeBlock(tb1);
+		Set<Activity> activitiesBefore = new HashSet<Activity>();
+		for (Activity activity : state1.getActivities()) {
+			activitiesBefore.add((Activity) DeepCopy.copy(activity));
+		}
+		
+		// go 2 levels deep
+		ArrayList<SearchState> successors = state1.successors();
+		Assert.assertEquals(3, successors.size());
+		SchedulingState child = (SchedulingState) successors.get(0);
+		successors = child.successors();
+		Assert.assertEquals(2, successors.size());
+		SchedulingState grandchild = (SchedulingState) successors.get(0);
+		
+		// the parents are untouched
+		Assert.assertEquals(before, tb1);
+		Assert.assertEquals(activitiesBefore, state1.getActivities());
+		Assert.assertEquals(3, child.getTb().getScheduledActivities()
+				.getNumScheduled());
+		
+		// the whole TB is put together from the tails
+		Assert.assertEquals(5, grandchild.getTb().getScheduledActivities()
+				.getNumScheduled());
+		Assert.assertEquals(grandchild.getTb().lastEndTime(), grandchild
+				.getTb().getLastScheduled().getKey()
+				.plus(grandchild.getTb().getLastScheduled().getValue()
+						.getDuration()));
+		Assert.assertEquals(grandchild, grandchild.clone());
+	}
+	
+	@Test
+	public void testCachedCosts() {
+		initHelper();
+		SchedulingState state = state1;
+		Assert.assertEquals(state.getTb().lastEndTime().getMillis(),
+				state.getG());
+		
+		// g and h follow the TB and the unscheduled activities all the way down
+		while (!state.successors().isEmpty()) {
+			state = (SchedulingState) state.successors().get(0);
+			long sum = 0;
+			for (Activity activity : state.getActivities()) {
+				sum += activity.getDuration().getMillis();
+			}
+			Assert.assertEquals(state.getTb().lastEndTime().getMillis(),
+					state.getG());
+			Assert.assertTrue(sum <= state.getH());
+			Assert.assertEquals(state.getG() + state.getH(), state.getF());
+		}
+		Assert.assertTrue(state.checkGoal());
+		Assert.assertEquals(0, state.getH());
+	}
+	
+	@Test
+	public void testAdmissible() {
+		initHelper();
+		bestGoal(state1);
+		bestGoal(state2);
+		bestGoal(state3);
+	}
+	
+	/**
+	 * Helper function that finds the lowest g of the goals under a state and
+	 * checks that f never overestimates it on the way
+	 */
+	private long bestGoal(SchedulingState state) {
+		if (state.checkGoal()) {
+			Assert.assertEquals(0, state.getH());
+			return state.getG();
+		}
+		long best = Long.MAX_VALUE;
+		for (SearchState successor : state.successors()) {
+			best = Math.min(best, bestGoal((SchedulingState) successor));
+			
+			// moving on never lowers f
+			Assert.assertTrue(state.getF() <= ((SchedulingState) successor)
+					.getF());
+		}
+		if (best != Long.MAX_VALUE) {
+			Assert.assertTrue(state.getF() <= best);
+		}
+		return best;
+	}
+	
+	@Test
+	public void testLongHashCode() {
+		initHelper();
+		ArrayList<SearchState> frontier = new ArrayList<SearchState>();
+		frontier.add(state1);
+		while (!frontier.isEmpty()) {
+			SchedulingState state = (SchedulingState) frontier.remove(0);
+			
+			// the hash kept along the way is the same as hashing from scratch
+			SchedulingState rebuilt = new SchedulingState(new TimeBlock(
+					state.getTb()), state.getGraph(), state.getTravelGraph(),
+					state.getActivities());
+			Assert.assertEquals(rebuilt.longHashCode(), state.longHashCode());
+			Assert.assertEquals(rebuilt, state);
+			Assert.assertEquals(rebuilt.hashCode(), state.hashCode());
+			Assert.assertEquals(state.getTb().longHashCode(), new TimeBlock(
+					state.getTb()).longHashCode());
+			frontier.addAll(state.successors());
+		}
+		
+		// siblings differ
+		ArrayList<SearchState> successors = state1.successors();
+		Assert.assertFalse(((SchedulingState) successors.get(0)).longHashCode() == ((SchedulingState) successors
+				.get(1)).longHashCode());
+		Assert.assertFalse(successors.get(0).equals(successors.get(1)));
+	}
+	
 	public static void initHelper() {
 		// building basics
 		tb1 = new TimeBlock(1, new Interval(1, 30), new Location(0, 0),
@@ -535,9 +693,10 @@ public class SchedulingStateTest {
 		graph.addEdge(start.location, hiking.location, new Transportation(
 				new Duration(5), start.location, hiking.location));
 		
-		state1 = new SchedulingState(tb1, graph, activities1);
-		state2 = new SchedulingState(tb2, graph, activities2);
-		state3 = new SchedulingState(tb3, graph, activities3);
+		TravelGraph travelGraph = new TravelMatrix(graph);
+		state1 = new SchedulingState(tb1, graph, travelGraph, activities1);
+		state2 = new SchedulingState(tb2, graph, travelGraph, activities2);
+		state3 = new SchedulingState(tb3, graph, travelGraph, activities3);
 		
 	}
 }
@@ -0,0 +1,60 @@
+package state;
+
+import org.jgrapht.graph.SimpleWeightedGraph;
+import org.joda.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+import schedulable.Transportation;
+import activities.Location;
+
+public class TravelMatrixTest {
+	
+	@Test
+	public void testTravelMatrix() {
+		Location a = new Location(0, 0);
+		Location b = new Location(1, 1);
+		Location c = new Location(2, 2);
+		Location d = new Location(3, 3);
+		SimpleWeightedGraph<Location, Transportation> graph = new SimpleWeightedGraph<Location, Transportation>(
+				Transportation.class);
+		Assert.assertTrue(graph.addVertex(a));
+		Assert.assertTrue(graph.addVertex(b));
+		Assert.assertTrue(graph.addVertex(c));
+		Assert.assertTrue(graph.addVertex(d));
+		Transportation ab = new Transportation(new Duration(2), a, b);
+		Assert.assertTrue(graph.addEdge(a, b, ab));
+		Assert.assertTrue(graph.addEdge(b, c, new Transportation(new Duration(
+				3), b, c)));
+		Assert.assertTrue(graph.addEdge(a, c, new Transportation(new Duration(
+				9), a, c)));
+		
+		TravelMatrix matrix = new TravelMatrix(graph);
+		Assert.assertEquals(4, matrix.size());
+		int idA = matrix.getId(a);
+		int idB = matrix.getId(b);
+		int idC = matrix.getId(c);
+		int idD = matrix.getId(d);
+		Assert.assertEquals(c, matrix.getLocation(idC));
+		Assert.assertEquals(TravelMatrix.NONE,
+				matrix.getId(new Location(4, 4)));
+		
+		// the edge itself when it is the fastest
+		Assert.assertEquals(0, matrix.getTime(idA, idA));
+		Assert.assertNull(matrix.getTransportation(idA, idA));
+		Assert.assertEquals(2, matrix.getTime(idB, idA));
+		Assert.assertSame(ab, matrix.getTransportation(idA, idB));
+		Assert.assertSame(ab, matrix.getTransportation(idB, idA));
+		
+		// through b is faster than the edge
+		Assert.assertEquals(5, matrix.getTime(idA, idC));
+		Transportation route = matrix.getTransportation(idA, idC);
+		Assert.assertEquals(new Duration(5), route.getDuration());
+		Assert.assertSame(route, matrix.getTransportation(idC, idA));
+		
+		// no way to d
+		Assert.assertEquals(TravelMatrix.UNREACHABLE, matrix.getTime(idA, idD));
+		Assert.assertNull(matrix.getTransportation(idD, idC));
+	}
+	
+}
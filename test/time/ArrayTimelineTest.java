@@ -0,0 +1,326 @@
+package time;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.joda.time.Interval;
+import org.junit.Assert;
+import org.junit.Test;
+
+import schedulable.Activity;
+import schedulable.LegalTime;
+import schedulable.Schedulable;
+import schedulable.Transportation;
+import activities.Location;
+
+public class ArrayTimelineTest {
+	ArrayTimeline timeline;
+	
+	@Test
+	public void testArrayTimelineInterval() {
+		timeline = new ArrayTimeline(new Interval(1, 5));
+		Assert.assertEquals(new Interval(1, 6), timeline.getInterval());
+		Assert.assertTrue(timeline.isEmpty());
+		Assert.assertEquals(1, timeline.lastEndMillis());
+		Assert.assertEquals(new Timeline(new Interval(1, 5)),
+				timeline.toTimeline());
+	}
+	
+	@Test
+	public void testArrayTimelineTimeline() {
+		TreeMap<DateTime, Schedulable> schedule = new TreeMap<DateTime, Schedulable>();
+		schedule.put(new DateTime(2), new Activity(new Duration(2)));
+		schedule.put(new DateTime(5), new Activity(new Duration(0)));
+		Timeline mutable = new Timeline(new Interval(1, 20), schedule);
+		timeline = new ArrayTimeline(mutable);
+		
+		Assert.assertEquals(mutable.getInterval(), timeline.getInterval());
+		Assert.assertEquals(schedule, timeline.getSchedule());
+		Assert.assertEquals(mutable, timeline.toTimeline());
+		Assert.assertEquals(new ArrayTimeline(mutable), timeline);
+		Assert.assertEquals(new ArrayTimeline(mutable).hashCode(),
+				timeline.hashCode());
+	}
+	
+	@Test
+	public void testSchedule() {
+		timeline = new ArrayTimeline(new Interval(1, 10));
+		
+		// out of range
+		Assert.assertFalse(timeline.schedule(new DateTime(8), new Activity(
+				new Duration(11))));
+		
+		// 1 - 1, 5 - 8
+		Assert.assertTrue(timeline.schedule(new DateTime(1), new Activity(
+				new Duration(0))));
+		Assert.assertTrue(timeline.schedule(new DateTime(5), new Activity(
+				new Duration(3))));
+		Assert.assertEquals(8, timeline.lastEndMillis());
+		
+		// overlap
+		Assert.assertFalse(timeline.schedule(new DateTime(1), new Activity(
+				new Duration(2))));
+		Assert.assertFalse(timeline.schedule(new DateTime(3), new Activity(
+				new Duration(6))));
+		Assert.assertFalse(timeline.schedule(new DateTime(6), new Activity(
+				new Duration(0))));
+		
+		// between: 1 - 1, 2 - 5, 5 - 8
+		Assert.assertTrue(timeline.schedule(new DateTime(2), new Activity(
+				new Duration(3))));
+		Assert.assertEquals(3, timeline.getNumScheduled());
+		Assert.assertTrue(timeline.hasScheduleStart(new DateTime(2)));
+		
+		// unschedule
+		Assert.assertEquals(new Activity(new Duration(3)),
+				timeline.unschedule(new DateTime(2)));
+		Assert.assertNull(timeline.unschedule(new DateTime(2)));
+		Assert.assertEquals(2, timeline.getNumScheduled());
+		Assert.assertFalse(timeline.hasScheduleStart(new DateTime(2)));
+	}
+	
+	@Test
+	public void testScheduleMany() {
+		timeline = new ArrayTimeline(new Interval(0, 1000));
+		Timeline mutable = new Timeline(new Interval(0, 1000));
+		
+		// schedule out of order so the arrays have to grow and shift
+		for (int i = 0; i < 100; i++) {
+			int start = (i * 37) % 100 * 10;
+			Activity activity = new Activity(new Duration(5));
+			Assert.assertTrue(timeline.schedule(start, activity));
+			Assert.assertTrue(mutable.schedule(new DateTime(start), activity));
+			Assert.assertFalse(timeline.schedule(start + 4, activity));
+		}
+		Assert.assertEquals(mutable.getSchedule(), timeline.getSchedule());
+		Assert.assertEquals(mutable.lastEndTime(), timeline.lastEndTime());
+	}
+	
+	@Test
+	public void testScheduleAfter() {
+		timeline = new ArrayTimeline(new Interval(1, 20));
+		Transportation transportation = new Transportation(new Duration(3),
+				new Location(0, 0), new Location(1, 1));
+		
+		// 1 - 4, 4 - 7
+		Assert.assertTrue(timeline.scheduleAfter(new DateTime(0),
+				transportation));
+		Assert.assertTrue(timeline.scheduleAfter(new DateTime(2),
+				transportation));
+		Assert.assertTrue(timeline.hasScheduleStart(new DateTime(4)));
+		
+		// doesn't fit
+		Assert.assertFalse(timeline.scheduleAfter(new DateTime(19),
+				transportation));
+		Assert.assertEquals(2, timeline.getNumScheduled());
+	}
+	
+	@Test
+	public void testScheduleAfterLegalTimeline() {
+		timeline = new ArrayTimeline(new Interval(1, 20));
+		LegalTimeline legalTimeline = new LegalTimeline(new Interval(1, 20));
+		Assert.assertTrue(legalTimeline.schedule(5, 10));
+		Activity activity = new Activity(new Duration(2));
+		
+		// 5 - 7
+		Assert.assertTrue(timeline.scheduleAfter(new DateTime(0),
+				legalTimeline, activity));
+		Assert.assertTrue(timeline.hasScheduleStart(new DateTime(5)));
+		
+		// the legal times are read again after the LegalTimeline changes.
+		// 7 - 9, 12 - 14
+		Assert.assertTrue(timeline.scheduleAfter(new DateTime(0),
+				legalTimeline, activity));
+		Assert.assertTrue(legalTimeline.schedule(12, 15));
+		Assert.assertFalse(timeline.scheduleAfter(new DateTime(0),
+				new ArrayTimeline(new LegalTimeline(new Interval(1, 20))),
+				activity));
+		Assert.assertTrue(timeline.scheduleAfter(new DateTime(0),
+				legalTimeline, activity));
+		Assert.assertTrue(timeline.hasScheduleStart(new DateTime(12)));
+	}
+	
+	@Test
+	public void testTailMerge() {
+		Timeline mutable = new Timeline(new Interval(0, 20));
+		Assert.assertTrue(mutable.schedule(new DateTime(2), new Activity(
+				new Duration(3))));
+		Assert.assertTrue(mutable.schedule(new DateTime(6), new Activity(
+				new Duration(0))));
+		timeline = new ArrayTimeline(mutable);
+		Assert.assertEquals(mutable.hashCode(), timeline.hashCode());
+		Assert.assertEquals(mutable.longHashCode(), timeline.longHashCode());
+		
+		// the tail only has the last one
+		ArrayTimeline tail = timeline.tail();
+		Assert.assertEquals(1, tail.getNumScheduled());
+		Assert.assertEquals(timeline.getInterval(), tail.getInterval());
+		Assert.assertEquals(new DateTime(6), tail.lastEntry().getKey());
+		Assert.assertTrue(tail.schedule(8, new Activity(new Duration(4))));
+		Assert.assertTrue(mutable.schedule(new DateTime(8), new Activity(
+				new Duration(4))));
+		Assert.assertEquals(2, timeline.getNumScheduled());
+		
+		// put back, the same as scheduling on the timeline itself
+		Assert.assertTrue(timeline.merge(tail));
+		Assert.assertEquals(mutable, timeline.toTimeline());
+		Assert.assertEquals(mutable.hashCode(), timeline.hashCode());
+		Assert.assertEquals(mutable.longHashCode(), timeline.longHashCode());
+		
+		// put ignores the interval but not the start times taken
+		Assert.assertTrue(timeline.put(-1, new Activity(new Duration(0))));
+		Assert.assertFalse(timeline.put(8, new Activity(new Duration(0))));
+		Assert.assertEquals(4, timeline.getNumScheduled());
+		
+		// something else at a start time taken
+		tail = new ArrayTimeline(new Interval(0, 20));
+		Assert.assertTrue(tail.schedule(8, new Activity(new Duration(1))));
+		Assert.assertFalse(timeline.merge(tail));
+	}
+	
+	@Test
+	public void testEarliestSchedulableLegalAfter() {
+		// Legal: 2 - 4, 9 - 12, 13 - 16 (false), 17 - 19
+		// Schedule: 1 - 2, 3 - 5, 10 - 10, 13 - 13
+		LegalTimeline legalTimeline = new LegalTimeline(new Interval(1, 20));
+		Assert.assertTrue(legalTimeline.schedule(2, 4));
+		Assert.assertTrue(legalTimeline.schedule(9, 12));
+		Assert.assertTrue(legalTimeline.schedule(new DateTime(13),
+				new LegalTime(new Duration(3), false)));
+		Assert.assertTrue(legalTimeline.schedule(17, 19));
+		Timeline mutable = new Timeline(new Interval(1, 20));
+		Assert.assertTrue(mutable.schedule(new DateTime(1), new Activity(
+				new Duration(1))));
+		Assert.assertTrue(mutable.schedule(new DateTime(3), new Activity(
+				new Duration(2))));
+		Assert.assertTrue(mutable.schedule(new DateTime(10), new Activity(
+				new Duration(0))));
+		Assert.assertTrue(mutable.schedule(new DateTime(13), new Activity(
+				new Duration(0))));
+		
+		timeline = new ArrayTimeline(mutable);
+		ArrayTimeline legal = new ArrayTimeline(legalTimeline);
+		
+		// same results as the TreeMap timeline for every bound and duration
+		for (int duration = 0; duration < 5; duration++) {
+			Activity schedulable = new Activity(new Duration(duration));
+			for (int bound = 0; bound < 25; bound++) {
+				Assert.assertEquals(mutable.earliestSchedulableLegalAfter(
+						new DateTime(bound), legalTimeline, schedulable),
+						timeline.earliestSchedulableLegalAfter(new DateTime(
+								bound), legal, schedulable));
+			}
+		}
+		
+		Assert.assertEquals(17, timeline.earliestSchedulableLegalAfter(12,
+				legal, 2));
+		Assert.assertEquals(ArrayTimeline.NONE, timeline
+				.earliestSchedulableLegalAfter(1, new ArrayTimeline(
+						new Interval(1, 20)), 2));
+	}
+	
+	@Test
+	public void testEarliestSchedulableManySchedulables() {
+		// fixed seed so that failures can be reproduced
+		Random random = new Random(42);
+		for (int round = 0; round < 50; round++) {
+			LegalTimeline legalTimeline = new LegalTimeline(new Interval(0, 100));
+			for (int time = random.nextInt(5); time < 100; time += random
+					.nextInt(10) + 1) {
+				int end = Math.min(time + random.nextInt(20), 100);
+				Assert.assertTrue(legalTimeline.schedule(new DateTime(time),
+						new LegalTime(new Duration(end - time), random
+								.nextInt(4) > 0)));
+				time = end;
+			}
+			Timeline mutable = new Timeline(new Interval(0, 100));
+			timeline = new ArrayTimeline(new Interval(0, 100));
+			for (int i = 0; i < 40; i++) {
+				DateTime start = new DateTime(random.nextInt(100));
+				Activity activity = new Activity(new Duration(random.nextInt(4)));
+				Assert.assertEquals(mutable.schedule(start, activity),
+						timeline.schedule(start, activity));
+			}
+			ArrayTimeline legal = new ArrayTimeline(legalTimeline);
+			LegalTimeline wholeInterval = new LegalTimeline(new Interval(0,
+					100));
+			Assert.assertTrue(wholeInterval.schedule(0, 101));
+			
+			// same results as the TreeMap timeline, with and without legal
+			// times
+			for (int duration = 0; duration < 8; duration++) {
+				Activity schedulable = new Activity(new Duration(duration));
+				for (int bound = 0; bound < 105; bound++) {
+					Assert.assertEquals(mutable.earliestSchedulableLegalAfter(
+							new DateTime(bound), legalTimeline, schedulable),
+							timeline.earliestSchedulableLegalAfter(new DateTime(
+									bound), legal, schedulable));
+					Assert.assertEquals(mutable.earliestSchedulableLegalAfter(
+							new DateTime(bound), wholeInterval, schedulable),
+							timeline.earliestSchedulableLegalAfter(new DateTime(
+									bound), null, schedulable));
+				}
+			}
+			
+			// the gap index is updated after unscheduling
+			timeline.unschedule(timeline.starts[timeline.size / 2]);
+			mutable = timeline.toTimeline();
+			for (int bound = 0; bound < 105; bound++) {
+				Assert.assertEquals(mutable.earliestSchedulableLegalAfter(
+						new DateTime(bound), legalTimeline, new Activity(
+								new Duration(3))), timeline
+						.earliestSchedulableLegalAfter(new DateTime(bound),
+								legal, new Activity(new Duration(3))));
+			}
+		}
+	}
+	
+	@Test
+	public void testGapIndexUpdates() {
+		Random random = new Random(7);
+		LegalTimeline wholeInterval = new LegalTimeline(new Interval(0, 200));
+		Assert.assertTrue(wholeInterval.schedule(0, 201));
+		Timeline mutable = new Timeline(new Interval(0, 200));
+		timeline = new ArrayTimeline(new Interval(0, 200));
+		
+		// schedule and unschedule in between the lookups, so the gap index is
+		// updated instead of built again. Copies take the gap index along and
+		// the arrays grow past the initial capacity
+		for (int step = 0; step < 500; step++) {
+			int op = random.nextInt(10);
+			if (op < 6) {
+				DateTime start = new DateTime(random.nextInt(200));
+				Activity activity = new Activity(new Duration(random.nextInt(6)));
+				Assert.assertEquals(mutable.schedule(start, activity),
+						timeline.schedule(start, activity));
+			} else if (op < 9 && !timeline.isEmpty()) {
+				DateTime start = new DateTime(timeline.starts[random
+						.nextInt(timeline.size)]);
+				Assert.assertEquals(mutable.unschedule(start),
+						timeline.unschedule(start));
+			} else {
+				timeline = new ArrayTimeline(timeline);
+			}
+			
+			Activity schedulable = new Activity(new Duration(
+					random.nextInt(8)));
+			for (int bound = 0; bound < 205; bound += 3) {
+				Assert.assertEquals(mutable.earliestSchedulableLegalAfter(
+						new DateTime(bound), wholeInterval, schedulable),
+						timeline.earliestSchedulableLegalAfter(new DateTime(
+								bound), null, schedulable));
+			}
+		}
+		Assert.assertEquals(mutable.getSchedule(), timeline.getSchedule());
+	}
+	
+	@Test(expected = ClassCastException.class)
+	public void testEarliestSchedulableNotLegalTime() {
+		timeline = new ArrayTimeline(new Interval(1, 20));
+		ArrayTimeline legal = new ArrayTimeline(new Interval(1, 20));
+		Assert.assertTrue(legal.schedule(2, new Activity(new Duration(5))));
+		timeline.earliestSchedulableLegalAfter(1, legal, 2);
+	}
+}
@@ -128,6 +128,47 @@ public class LegalTimelineTest {
 		
 	}
 	
+	@Test
+	public void testAvailableFrom() {
+		legalTimeline = new LegalTimeline(new Interval(1, 20));
+		
+		// 2 - 4, 6 - 10 (false), 10 - 14
+		Assert.assertTrue(legalTimeline.schedule(2, 4));
+		Assert.assertTrue(legalTimeline.schedule(new DateTime(6),
+				new LegalTime(new Duration(4), false)));
+		Assert.assertTrue(legalTimeline.schedule(10, 14));
+		LegalTimeline copy = (LegalTimeline) DeepCopy.copy(legalTimeline);
+		
+		Iterator<Interval> itr = legalTimeline.availableFrom(new DateTime(3));
+		Assert.assertEquals(new Interval(3, 4), itr.next());
+		Assert.assertEquals(new Interval(10, 14), itr.next());
+		Assert.assertFalse(itr.hasNext());
+		
+		// cut in the middle, nothing changed
+		itr = legalTimeline.availableFrom(new DateTime(12));
+		Assert.assertEquals(new Interval(12, 14), itr.next());
+		Assert.assertFalse(itr.hasNext());
+		Assert.assertEquals(copy, legalTimeline);
+		
+		// same as setEarliestAvailable() then enoughLegalTimes()
+		Assert.assertTrue(legalTimeline.enoughLegalTimes(new DateTime(11),
+				new Duration(3)));
+		Assert.assertFalse(legalTimeline.enoughLegalTimes(new DateTime(12),
+				new Duration(3)));
+		Assert.assertTrue(copy.setEarliestAvailable(new DateTime(12)));
+		Assert.assertFalse(copy.enoughLegalTimes(new Duration(3)));
+		Assert.assertFalse(legalTimeline.availableFrom(new DateTime(15))
+				.hasNext());
+	}
+	
+	@Test(expected = ClassCastException.class)
+	public void testAvailableFromNotLegalTime() {
+		legalTimeline = new LegalTimeline(new Interval(1, 20));
+		legalTimeline.schedule.put(new DateTime(2), new Activity(new Duration(
+				2)));
+		legalTimeline.availableFrom(new DateTime(1)).hasNext();
+	}
+	
 	@Test
 	public void testEnoughLegalTimes() {
 		legalTimeline = new LegalTimeline(new Interval(1, 20));
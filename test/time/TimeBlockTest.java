@@ -94,17 +94,17 @@ public class TimeBlockTest {
 		// no bound
 		Assert.assertTrue(tb.scheduleAfter(activity));
 		Assert.assertEquals(activity,
-				(Activity) tb.getScheduledActivities().schedule
+				(Activity) tb.getScheduledActivities().getSchedule()
 						.get(new DateTime(12)));
 		
 		// with bound
 		Assert.assertTrue(tb.scheduleAfter(new DateTime(13), activity));
 		Assert.assertEquals(activity,
-				(Activity) tb.getScheduledActivities().schedule
+				(Activity) tb.getScheduledActivities().getSchedule()
 						.get(new DateTime(21)));
 		Assert.assertTrue(tb.scheduleAfter(new DateTime(28), activity));
 		Assert.assertEquals(activity,
-				(Activity) tb.getScheduledActivities().schedule
+				(Activity) tb.getScheduledActivities().getSchedule()
 						.get(new DateTime(28)));
 		
 		// no legalTime
@@ -117,10 +117,10 @@ public class TimeBlockTest {
 				new Activity(new Duration(2))));
 		Assert.assertTrue(tb.scheduleAfter(new DateTime(3), transport));
 		Assert.assertEquals(transport, (Transportation) tb
-				.getScheduledActivities().schedule.get(new DateTime(5)));
+				.getScheduledActivities().getSchedule().get(new DateTime(5)));
 		Assert.assertTrue(tb.scheduleAfter(transport));
 		Assert.assertEquals(transport, (Transportation) tb
-				.getScheduledActivities().schedule.get(new DateTime(1)));
+				.getScheduledActivities().getSchedule().get(new DateTime(1)));
 		
 	}
 	
@@ -137,8 +137,8 @@ public class TimeBlockTest {
 		// legal
 		activity = new Activity("", new Duration(1), new Location(1, 2));
 		Assert.assertTrue(tb.scheduleBeforeTb(activity));
-		Map.Entry<DateTime, Schedulable> entry = tb.getScheduledActivities().schedule
-				.firstEntry();
+		Map.Entry<DateTime, Schedulable> entry = tb.getScheduledActivities()
+				.getSchedule().firstEntry();
 		Assert.assertEquals(new DateTime(0), entry.getKey());
 		Assert.assertEquals(activity, entry.getValue());
 		
@@ -146,7 +146,7 @@ public class TimeBlockTest {
 		Activity activity2 = new Activity("", new Duration(0), new Location(1,
 				2));
 		Assert.assertFalse(tb.scheduleBeforeTb(activity2));
-		entry = tb.getScheduledActivities().schedule.firstEntry();
+		entry = tb.getScheduledActivities().getSchedule().firstEntry();
 		Assert.assertEquals(new DateTime(0), entry.getKey());
 		Assert.assertEquals(activity, entry.getValue());
 		
@@ -167,8 +167,8 @@ public class TimeBlockTest {
 		// legal
 		activity = new Activity("", new Duration(1), new Location(1, 2));
 		Assert.assertTrue(tb.scheduleAfterTb(activity));
-		Map.Entry<DateTime, Schedulable> entry = tb.getScheduledActivities().schedule
-				.lastEntry();
+		Map.Entry<DateTime, Schedulable> entry = tb.getScheduledActivities()
+				.getSchedule().lastEntry();
 		Assert.assertEquals(new DateTime(7), entry.getKey());
 		Assert.assertEquals(activity, entry.getValue());
 		
@@ -191,4 +191,43 @@ public class TimeBlockTest {
 		
 	}
 	
+	@Test
+	public void testTailAndMerge() {
+		tb = new TimeBlock(1, new Interval(1, 30), new Location(1, 1),
+				new Location(2, 2));
+		Assert.assertTrue(tb.schedule(new DateTime(2), new Activity(
+				new Duration(3))));
+		Assert.assertTrue(tb.schedule(new DateTime(6), new Activity(
+				new Duration(2))));
+		
+		// tail only has 6 - 8
+		TimeBlock tail = tb.tail();
+		Assert.assertEquals(1, tail.getScheduledActivities().getNumScheduled());
+		Assert.assertEquals(tb.getInterval(), tail.getInterval());
+		Assert.assertEquals(tb.getIndex(), tail.getIndex());
+		Assert.assertEquals(new DateTime(8), tail.lastEndTime());
+		
+		// scheduling on the tail doesn't affect the TB
+		Transportation transportation = new Transportation(new Duration(4),
+				new Location(1, 1), new Location(2, 2));
+		Assert.assertTrue(tail.scheduleAfter(tail.lastEndTime(),
+				transportation));
+		Assert.assertEquals(2, tb.getScheduledActivities().getNumScheduled());
+		
+		// merge back: 2 - 5, 6 - 8, 8 - 12
+		TimeBlock copy = new TimeBlock(tb);
+		Assert.assertTrue(copy.merge(tail));
+		Assert.assertEquals(3, copy.getScheduledActivities().getNumScheduled());
+		Assert.assertEquals(transportation, copy.getLastScheduled().getValue());
+		Assert.assertEquals(2, tb.getScheduledActivities().getNumScheduled());
+		
+		// conflicting start time
+		tail = tb.tail();
+		Assert.assertTrue(tail.getScheduledActivities().unschedule(
+				new DateTime(6)) != null);
+		Assert.assertTrue(tail.schedule(new DateTime(6), new Activity(
+				new Duration(1))));
+		Assert.assertFalse(copy.merge(tail));
+	}
+	
 }
@@ -322,6 +322,42 @@ public class TimelineTest {
 		
 	}
 	
+	@Test
+	public void testScheduleBetween() {
+		// 2 - 4, 6 - 6, 8 - 10, 14 - 16
+		timeline = new Timeline(new Interval(1, 20));
+		Assert.assertTrue(timeline.schedule(new DateTime(14), new Activity(
+				new Duration(2))));
+		Assert.assertTrue(timeline.schedule(new DateTime(8), new Activity(
+				new Duration(2))));
+		Assert.assertTrue(timeline.schedule(new DateTime(2), new Activity(
+				new Duration(2))));
+		Assert.assertTrue(timeline.schedule(new DateTime(6), new Activity(
+				new Duration(0))));
+		
+		// overlaps with the one before, the one after, or starts together
+		Assert.assertFalse(timeline.schedule(new DateTime(9), new Activity(
+				new Duration(1))));
+		Assert.assertFalse(timeline.schedule(new DateTime(11), new Activity(
+				new Duration(4))));
+		Assert.assertFalse(timeline.schedule(new DateTime(5), new Activity(
+				new Duration(2))));
+		Assert.assertFalse(timeline.schedule(new DateTime(6), new Activity(
+				new Duration(1))));
+		Assert.assertFalse(timeline.schedule(new DateTime(9), new Activity(
+				new Duration(0))));
+		
+		// fits right between
+		Assert.assertTrue(timeline.schedule(new DateTime(4), new Activity(
+				new Duration(2))));
+		Assert.assertTrue(timeline.schedule(new DateTime(10), new Activity(
+				new Duration(4))));
+		Assert.assertTrue(timeline.schedule(new DateTime(7), new Activity(
+				new Duration(0))));
+		Assert.assertEquals(7, timeline.getNumScheduled());
+		
+	}
+	
 	@Test
 	public void testUnschedule() {
 		timeline = new Timeline(new Interval(1, 10));
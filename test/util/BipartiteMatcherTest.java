@@ -0,0 +1,102 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BipartiteMatcherTest {
+	
+	@Test
+	public void testMaximumMatching() {
+		// 0: 0 1, 1: 0, 2: 1 2. Greedy would match 0 - 0 and get stuck on 1
+		BipartiteMatcher matcher = new BipartiteMatcher(new int[][] {
+				{ 0, 1 }, { 0 }, { 1, 2 } }, 3);
+		int[] matching = matcher.maximumMatching();
+		Assert.assertEquals(1, matching[0]);
+		Assert.assertEquals(0, matching[1]);
+		Assert.assertEquals(2, matching[2]);
+		Assert.assertTrue(matcher.hasSaturatingMatching());
+		
+		// 0, 1 and 2 all only want 0 or 1
+		matcher = new BipartiteMatcher(new int[][] { { 0, 1 }, { 0 }, { 1, 0 } },
+				3);
+		Assert.assertFalse(matcher.hasSaturatingMatching());
+		Assert.assertFalse(matcher.canMatch(0, 0));
+		
+		// nothing to match
+		matcher = new BipartiteMatcher(new int[0][], 0);
+		Assert.assertTrue(matcher.hasSaturatingMatching());
+	}
+	
+	@Test
+	public void testCanMatch() {
+		// 0: 0 1, 1: 0 2, 2: 1. Only 0 - 0, 1 - 2, 2 - 1 matches them all
+		BipartiteMatcher matcher = new BipartiteMatcher(new int[][] {
+				{ 0, 1 }, { 0, 2 }, { 1 } }, 3);
+		Assert.assertTrue(matcher.canMatch(0, 0));
+		Assert.assertFalse(matcher.canMatch(0, 1));
+		Assert.assertFalse(matcher.canMatch(1, 0));
+		Assert.assertTrue(matcher.canMatch(1, 2));
+		Assert.assertTrue(matcher.canMatch(2, 1));
+		Assert.assertFalse(matcher.canMatch(2, 2));
+		
+		// fixed seed so that failures can be reproduced
+		Random random = new Random(7);
+		for (int round = 0; round < 200; round++) {
+			int numLeft = random.nextInt(6) + 1;
+			int numRight = numLeft + random.nextInt(3);
+			int[][] adjacency = new int[numLeft][];
+			for (int left = 0; left < numLeft; left++) {
+				int[] rights = new int[numRight];
+				int degree = 0;
+				for (int right = 0; right < numRight; right++) {
+					if (random.nextInt(2) == 0) {
+						rights[degree++] = right;
+					}
+				}
+				adjacency[left] = Arrays.copyOf(rights, degree);
+			}
+			
+			// the same answer as trying every matching with the edge
+			matcher = new BipartiteMatcher(adjacency, numRight);
+			for (int left = 0; left < numLeft; left++) {
+				for (int right = 0; right < numRight; right++) {
+					boolean[] used = new boolean[numRight];
+					boolean expected = contains(adjacency[left], right)
+							&& count(adjacency, 0, used, left, right) > 0;
+					Assert.assertEquals(expected, matcher.canMatch(left, right));
+				}
+			}
+		}
+	}
+	
+	private static boolean contains(int[] rights, int right) {
+		for (int other : rights) {
+			if (other == right) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// brute force count of the matchings that match every left vertex and
+	// match the fixed left vertex with the fixed right vertex
+	private static int count(int[][] adjacency, int left, boolean[] used,
+			int fixedLeft, int fixedRight) {
+		if (left == adjacency.length) {
+			return 1;
+		}
+		int sum = 0;
+		for (int right : adjacency[left]) {
+			if (!used[right] && (left != fixedLeft || right == fixedRight)) {
+				used[right] = true;
+				sum += count(adjacency, left + 1, used, fixedLeft, fixedRight);
+				used[right] = false;
+			}
+		}
+		return sum;
+	}
+	
+}
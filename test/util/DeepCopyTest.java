@@ -14,6 +14,7 @@ import schedulable.Activity;
 import schedulable.LegalTime;
 import schedulable.Transportation;
 import state.SchedulingState;
+import state.TravelMatrix;
 import time.LegalTimeline;
 import time.TimeBlock;
 import time.Timeline;
@@ -89,7 +90,8 @@ public class DeepCopyTest {
 		graph.addEdge(park.location, concert.location, new Transportation(
 				new Duration(2), park.location, concert.location));
 		
-		SchedulingState state = new SchedulingState(tb, graph, activities);
+		SchedulingState state = new SchedulingState(tb, graph,
+				new TravelMatrix(graph), activities);
 		SchedulingState clone = state.clone();
 		Assert.assertTrue(clone.getGraph().containsVertex(museum.location));
 		Assert.assertTrue(clone.getGraph().containsVertex(park.location));